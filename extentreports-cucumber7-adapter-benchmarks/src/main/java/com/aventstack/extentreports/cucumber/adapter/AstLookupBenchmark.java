@@ -0,0 +1,99 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.cucumber.plugin.event.TestSourceRead;
+
+/**
+ * Lookup of the AST node of a step of a large feature, by the line index of the
+ * feature source the adapter keeps for a test case, against the map of nodes by
+ * boxed line, within a map by feature uri, it used before. The steps are looked
+ * up in a random order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AstLookupBenchmark {
+
+	@Param({ "100", "1000" })
+	public int scenarios;
+
+	private URI uri;
+	private TestSourcesModel.FeatureSource featureSource;
+	private Map<URI, Map<Long, TestSourcesModel.AstNode>> pathToNodeMap;
+	private int[] lines;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		SyntheticFeature feature = new SyntheticFeature(scenarios, scenarios, 20, 500);
+		uri = URI.create("file:/benchmark/lookup.feature");
+		TestSourcesModel testSources = new TestSourcesModel();
+		testSources.addTestSourceReadEvent(uri, new TestSourceRead(Instant.EPOCH, uri, feature.getSource()));
+		featureSource = testSources.getFeatureSource(uri);
+
+		Map<Long, TestSourcesModel.AstNode> nodeMap = new HashMap<>();
+		for (int line = 1; line <= feature.getLineCount(); line++) {
+			TestSourcesModel.AstNode node = featureSource.getAstNode(line);
+			if (node != null) {
+				nodeMap.put((long) line, node);
+			}
+		}
+		pathToNodeMap = new HashMap<>();
+		pathToNodeMap.put(uri, nodeMap);
+
+		lines = feature.getStepLines();
+		Random random = new Random(scenarios);
+		for (int i = lines.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int line = lines[i];
+			lines[i] = lines[j];
+			lines[j] = line;
+		}
+	}
+
+	// As the removed TestSourcesModel.getAstNode(URI, int) did for each step
+	@Benchmark
+	public Object lineMap() {
+		int line = nextLine();
+		if (!pathToNodeMap.containsKey(uri)) {
+			// The source was parsed here, on the first lookup
+			return null;
+		}
+		if (pathToNodeMap.containsKey(uri)) {
+			return pathToNodeMap.get(uri).get(Long.valueOf(line));
+		}
+		return null;
+	}
+
+	@Benchmark
+	public Object lineIndex() {
+		return featureSource.getAstNode(nextLine());
+	}
+
+	private int nextLine() {
+		int line = lines[next];
+		next = next + 1 == lines.length ? 0 : next + 1;
+		return line;
+	}
+}
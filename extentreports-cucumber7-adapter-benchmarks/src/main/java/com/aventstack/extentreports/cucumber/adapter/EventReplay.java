@@ -0,0 +1,136 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.cucumber.plugin.event.EmbedEvent;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Result;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestSourceRead;
+import io.cucumber.plugin.event.TestStep;
+import io.cucumber.plugin.event.TestStepFinished;
+import io.cucumber.plugin.event.TestStepStarted;
+import io.cucumber.plugin.event.WriteEvent;
+
+/**
+ * Replays the events of the test cases of a synthetic feature, in the order a
+ * single Cucumber thread publishes these. The feature is read again under a new
+ * uri once all its test cases have finished, as the adapter then releases it.
+ * Not thread safe, each thread replays its own features.
+ */
+final class EventReplay {
+
+	static final Result PASSED = new Result(Status.PASSED, Duration.ZERO, null);
+
+	// The adapter does not read the times of the events
+	private static final Instant TIME = Instant.EPOCH;
+	private static final String MEDIA_TYPE = "image/png";
+	private static final AtomicInteger REPLAYS = new AtomicInteger(0);
+
+	private final ReplayPublisher publisher;
+	private final SyntheticFeature feature;
+	private final String uriPrefix = "file:/benchmark/replay-" + REPLAYS.incrementAndGet() + "/feature-";
+	private int round = 0;
+	private List<SyntheticTestCase> testCases = Collections.emptyList();
+	private int nextTestCase = 0;
+	// Only available while a test case, or a step of it, is started
+	private SyntheticTestCase testCase;
+	private TestStep testStep;
+
+	EventReplay(ReplayPublisher publisher, SyntheticFeature feature) {
+		this.publisher = publisher;
+		this.feature = feature;
+	}
+
+	/**
+	 * All the events of the next test case. The before hook reports nothing, a
+	 * line is written by the step with the doc string, and the after hook
+	 * attaches the media.
+	 */
+	void replayTestCase(byte[] media, String text) {
+		startTestCase();
+		hook(testCase.getBeforeHook());
+		for (PickleStepTestStep step : testCase.getPickleSteps()) {
+			publish(new TestStepStarted(TIME, testCase, step));
+			if (((SyntheticFeature.StepTemplate) step.getStep()).kind == SyntheticFeature.StepKind.DOC_STRING) {
+				publish(new WriteEvent(TIME, testCase, text));
+			}
+			publish(new TestStepFinished(TIME, testCase, step, PASSED));
+		}
+		publish(new TestStepStarted(TIME, testCase, testCase.getAfterHook()));
+		publish(new EmbedEvent(TIME, testCase, media, MEDIA_TYPE, "screenshot"));
+		publish(new TestStepFinished(TIME, testCase, testCase.getAfterHook(), PASSED));
+		finishTestCase();
+	}
+
+	void startTestCase() {
+		if (nextTestCase == testCases.size()) {
+			readFeature();
+		}
+		testCase = testCases.get(nextTestCase++);
+		publish(new TestCaseStarted(TIME, testCase));
+	}
+
+	void finishTestCase() {
+		publish(new TestCaseFinished(TIME, testCase, PASSED));
+		testCase = null;
+		testStep = null;
+	}
+
+	void stepStarted(SyntheticFeature.StepKind kind) {
+		testStep = testCase.getStep(kind);
+		publish(new TestStepStarted(TIME, testCase, testStep));
+	}
+
+	void stepFinished(Result result) {
+		publish(new TestStepFinished(TIME, testCase, testStep, result));
+	}
+
+	// A hook which passes without reporting anything
+	void hook(HookTestStep hook) {
+		publish(new TestStepStarted(TIME, testCase, hook));
+		publish(new TestStepFinished(TIME, testCase, hook, PASSED));
+	}
+
+	void embed(byte[] media) {
+		publish(new EmbedEvent(TIME, testCase, media, MEDIA_TYPE, "screenshot"));
+	}
+
+	void write(String text) {
+		publish(new WriteEvent(TIME, testCase, text));
+	}
+
+	SyntheticTestCase getTestCase() {
+		return testCase;
+	}
+
+	// Distinct payloads of the size of a screenshot, stored once each by the adapter
+	static byte[][] createMedia(int count, int size) {
+		Random random = new Random(count);
+		byte[][] media = new byte[count][size];
+		for (byte[] m : media) {
+			random.nextBytes(m);
+		}
+		return media;
+	}
+
+	private void readFeature() {
+		URI uri = URI.create(uriPrefix + (++round) + ".feature");
+		testCases = feature.createTestCases(uri);
+		nextTestCase = 0;
+		publish(new TestSourceRead(TIME, uri, feature.getSource()));
+	}
+
+	private void publish(Object event) {
+		publisher.publish(event);
+	}
+}
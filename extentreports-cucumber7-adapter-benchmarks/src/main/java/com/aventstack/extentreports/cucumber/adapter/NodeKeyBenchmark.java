@@ -0,0 +1,87 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.cucumber.plugin.event.TestSourceRead;
+
+/**
+ * Lookup of the feature and scenario outline nodes of a test case of a large
+ * feature, by uri and line as the adapter does, against the maps keyed by the
+ * Gherkin messages it used before. The hash code of a message is computed over
+ * its whole tree each time, so the cost grows with the size of the feature.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeKeyBenchmark {
+
+	@Param({ "10", "1000" })
+	public int scenarios;
+
+	// The messages are only used as keys, their types are relocated in the adapter jar
+	private Object feature;
+	private Object scenarioOutline;
+	private final Map<Object, Object> featureByMessage = new ConcurrentHashMap<>();
+	private final Map<Object, Object> outlineByMessage = new ConcurrentHashMap<>();
+
+	private URI uri;
+	private Long outlineLine;
+	private final Map<URI, Object> featureByUri = new ConcurrentHashMap<>();
+	private final Map<URI, Map<Long, Object>> outlineByUri = new ConcurrentHashMap<>();
+
+	@Setup
+	public void setUp() {
+		SyntheticFeature syntheticFeature = new SyntheticFeature(scenarios, scenarios, 20, 500);
+		uri = URI.create("file:/benchmark/nodes.feature");
+		TestSourcesModel testSources = new TestSourcesModel();
+		testSources.addTestSourceReadEvent(uri, new TestSourceRead(Instant.EPOCH, uri, syntheticFeature.getSource()));
+		TestSourcesModel.FeatureSource featureSource = testSources.getFeatureSource(uri);
+
+		feature = featureSource.getFeature();
+		scenarioOutline = TestSourcesModel
+				.getScenarioDefinition(featureSource.getAstNode(syntheticFeature.getOutlineLine()));
+		outlineLine = (long) syntheticFeature.getOutlineLine();
+
+		featureByMessage.put(feature, "feature");
+		outlineByMessage.put(scenarioOutline, "outline");
+		featureByUri.put(uri, "feature");
+		outlineByUri.computeIfAbsent(uri, u -> new ConcurrentHashMap<>()).put(outlineLine, "outline");
+	}
+
+	// As the adapter did for each test case of an outline
+	@Benchmark
+	public void messageKeys(Blackhole blackhole) {
+		if (featureByMessage.containsKey(feature)) {
+			blackhole.consume(featureByMessage.get(feature));
+		}
+		if (outlineByMessage.containsKey(scenarioOutline)) {
+			blackhole.consume(outlineByMessage.get(scenarioOutline));
+		}
+	}
+
+	@Benchmark
+	public void uriKeys(Blackhole blackhole) {
+		blackhole.consume(featureByUri.get(uri));
+		blackhole.consume(outlineByUri.get(uri).get(outlineLine));
+	}
+}
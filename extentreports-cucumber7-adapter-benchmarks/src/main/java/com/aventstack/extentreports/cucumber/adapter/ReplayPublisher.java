@@ -0,0 +1,101 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aventstack.extentreports.model.Report;
+import com.aventstack.extentreports.service.ExtentService;
+
+import io.cucumber.plugin.event.EventHandler;
+import io.cucumber.plugin.event.EventPublisher;
+
+/**
+ * Delivers the replayed events to the handlers registered by the adapter, on
+ * the calling thread, as the Cucumber event bus does. With the global lock, all
+ * the threads deliver their events holding one shared monitor, as when every
+ * handler of the adapter was synchronized, so that the two can be compared.
+ */
+final class ReplayPublisher implements EventPublisher {
+
+	static final String NO_CAPTURE_FILTER = "none";
+
+	private final Map<Class<?>, List<EventHandler<?>>> handlers = new HashMap<>();
+	// Only available when the events are delivered under the global lock
+	private final Object monitor;
+
+	private ReplayPublisher(boolean globalLock) {
+		this.monitor = globalLock ? new Object() : null;
+	}
+
+	/**
+	 * Creates the adapter, which reads its settings once, when first created.
+	 * Each benchmark is run in a new JVM, so each can use its own settings. The
+	 * capture status filter is only set when not {@value #NO_CAPTURE_FILTER}.
+	 */
+	static ReplayPublisher attachAdapter(boolean async, boolean globalLock, String captureStatusFilter)
+			throws IOException {
+		File screenshots = Files.createTempDirectory("extent-benchmark").toFile();
+		System.setProperty("screenshot.dir", screenshots.getPath() + File.separator);
+		System.setProperty("extent.async.enable", String.valueOf(async));
+		if (NO_CAPTURE_FILTER.equals(captureStatusFilter)) {
+			System.clearProperty("extent.capture.statusfilter");
+		} else {
+			System.setProperty("extent.capture.statusfilter", captureStatusFilter);
+		}
+
+		ReplayPublisher publisher = new ReplayPublisher(globalLock);
+		new ExtentCucumberAdapter("").setEventPublisher(publisher);
+		return publisher;
+	}
+
+	/**
+	 * Removes all the tests from the report, once the events queued in the
+	 * asynchronous mode have been applied, so that the heap does not grow over
+	 * the iterations when the scenarios are kept. Only called while no events
+	 * are published. The nodes of the running test cases are left detached.
+	 */
+	static void clearReport() {
+		// Waits for the queued events
+		ExtentCucumberAdapter.getCurrentScenario();
+		Report report = ExtentService.getInstance().getReport();
+		report.getTestList().clear();
+		report.getAuthorCtx().getSet().clear();
+		report.getCategoryCtx().getSet().clear();
+		report.getDeviceCtx().getSet().clear();
+		report.getExceptionInfoCtx().getSet().clear();
+	}
+
+	@Override
+	public <T> void registerHandlerFor(Class<T> eventType, EventHandler<T> handler) {
+		handlers.computeIfAbsent(eventType, t -> new ArrayList<>()).add(handler);
+	}
+
+	@Override
+	public <T> void removeHandlerFor(Class<T> eventType, EventHandler<T> handler) {
+		handlers.getOrDefault(eventType, Collections.emptyList()).remove(handler);
+	}
+
+	<T> void publish(T event) {
+		List<EventHandler<?>> eventHandlers = handlers.getOrDefault(event.getClass(), Collections.emptyList());
+		if (monitor == null) {
+			deliver(eventHandlers, event);
+			return;
+		}
+		synchronized (monitor) {
+			deliver(eventHandlers, event);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void deliver(List<EventHandler<?>> eventHandlers, T event) {
+		for (EventHandler<?> handler : eventHandlers) {
+			((EventHandler<T>) handler).receive(event);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole test cases replayed into the adapter, from features with scenarios,
+ * a scenario outline, data tables, doc strings, hooks and screenshots. Each
+ * thread replays its own features, as the threads of a parallel run do, see
+ * {@link ThreadScaling} to run these at 1 to N threads. With the global lock
+ * all the events are delivered under one monitor, as when every handler of the
+ * adapter was synchronized. The scenarios are either all kept in the report,
+ * as by default, or all left out by the capture status filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScenarioReplayBenchmark {
+
+	private static final int MEDIA_COUNT = 16;
+
+	@Param({ "false", "true" })
+	public boolean globalLock;
+
+	@Param({ "false", "true" })
+	public boolean async;
+
+	// Statuses of the scenarios kept in the report, all pass so FAIL keeps none
+	@Param({ ReplayPublisher.NO_CAPTURE_FILTER, "FAIL" })
+	public String captureStatusFilter;
+
+	@Param("20")
+	public int scenarios;
+
+	@Param("20")
+	public int outlineRows;
+
+	@Param("20")
+	public int tableRows;
+
+	@Param("16384")
+	public int mediaSize;
+
+	private ReplayPublisher publisher;
+	private SyntheticFeature feature;
+	private byte[][] media;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		publisher = ReplayPublisher.attachAdapter(async, globalLock, captureStatusFilter);
+		feature = new SyntheticFeature(scenarios, outlineRows, tableRows, 500);
+		media = EventReplay.createMedia(MEDIA_COUNT, mediaSize);
+	}
+
+	@TearDown(Level.Iteration)
+	public void clearReport() {
+		ReplayPublisher.clearReport();
+	}
+
+	@State(Scope.Thread)
+	public static class Replay {
+
+		private EventReplay replay;
+		private byte[][] media;
+		private int testCases;
+
+		@Setup(Level.Trial)
+		public void setUp(ScenarioReplayBenchmark benchmark) {
+			replay = new EventReplay(benchmark.publisher, benchmark.feature);
+			media = benchmark.media;
+		}
+
+	}
+
+	@Benchmark
+	public void testCase(Replay replay) {
+		replay.replay.replayTestCase(replay.media[replay.testCases++ % MEDIA_COUNT], "written by the step");
+	}
+
+	// Only the feature, outline and scenario nodes, and the release of the feature
+	@Benchmark
+	public void testCaseWithoutSteps(Replay replay) {
+		replay.replay.startTestCase();
+		replay.replay.finishTestCase();
+	}
+}
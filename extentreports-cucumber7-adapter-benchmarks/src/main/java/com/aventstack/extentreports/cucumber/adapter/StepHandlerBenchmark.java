@@ -0,0 +1,157 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.cucumber.plugin.event.Result;
+import io.cucumber.plugin.event.Status;
+
+/**
+ * A single event of each kind handled by the adapter, within a running test
+ * case of each thread. The test case is finished, and the next one started,
+ * every {@value Replay#EVENTS_PER_TEST_CASE} events, so that the nodes and logs
+ * of a test case stay as few as in a real scenario. The cost of this is shared
+ * by the events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StepHandlerBenchmark {
+
+	private static final int MEDIA_COUNT = 16;
+	private static final Result FAILED = new Result(Status.FAILED, Duration.ZERO,
+			new AssertionError("Synthetic failure"));
+
+	@Param({ "false", "true" })
+	public boolean async;
+
+	@Param(ReplayPublisher.NO_CAPTURE_FILTER)
+	public String captureStatusFilter;
+
+	// At least one row, the data table step is replayed
+	@Param("20")
+	public int tableRows;
+
+	@Param("500")
+	public int docStringLength;
+
+	@Param("16384")
+	public int mediaSize;
+
+	private ReplayPublisher publisher;
+	private SyntheticFeature feature;
+	private byte[][] media;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		publisher = ReplayPublisher.attachAdapter(async, false, captureStatusFilter);
+		// Without an outline, so that every test case has all the kinds of steps
+		feature = new SyntheticFeature(16, 0, tableRows, docStringLength);
+		media = EventReplay.createMedia(MEDIA_COUNT, mediaSize);
+	}
+
+	@TearDown(Level.Iteration)
+	public void clearReport() {
+		ReplayPublisher.clearReport();
+	}
+
+	@State(Scope.Thread)
+	public static class Replay {
+
+		static final int EVENTS_PER_TEST_CASE = 64;
+
+		private EventReplay replay;
+		private byte[][] media;
+		private int events;
+
+		@Setup(Level.Trial)
+		public void setUp(StepHandlerBenchmark benchmark) {
+			replay = new EventReplay(benchmark.publisher, benchmark.feature);
+			media = benchmark.media;
+			start();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			replay.finishTestCase();
+		}
+
+		EventReplay next() {
+			if (++events % EVENTS_PER_TEST_CASE == 0) {
+				replay.finishTestCase();
+				start();
+			}
+			return replay;
+		}
+
+		byte[] nextMedia() {
+			return media[events % MEDIA_COUNT];
+		}
+
+		private void start() {
+			replay.startTestCase();
+			replay.stepStarted(SyntheticFeature.StepKind.PLAIN);
+		}
+
+	}
+
+	@Benchmark
+	public void testStepStarted(Replay replay) {
+		replay.next().stepStarted(SyntheticFeature.StepKind.PLAIN);
+	}
+
+	@Benchmark
+	public void testStepStartedDataTable(Replay replay) {
+		replay.next().stepStarted(SyntheticFeature.StepKind.DATA_TABLE);
+	}
+
+	@Benchmark
+	public void testStepStartedDocString(Replay replay) {
+		replay.next().stepStarted(SyntheticFeature.StepKind.DOC_STRING);
+	}
+
+	@Benchmark
+	public void testStepFinished(Replay replay) {
+		replay.next().stepFinished(EventReplay.PASSED);
+	}
+
+	@Benchmark
+	public void testStepFinishedFailed(Replay replay) {
+		replay.next().stepFinished(FAILED);
+	}
+
+	@Benchmark
+	public void embedEvent(Replay replay) {
+		replay.next().embed(replay.nextMedia());
+	}
+
+	@Benchmark
+	public void writeEvent(Replay replay) {
+		replay.next().write("written by the step");
+	}
+
+	// Started and finished, without reporting anything
+	@Benchmark
+	public void hook(Replay replay) {
+		EventReplay r = replay.next();
+		r.hook(r.getTestCase().getBeforeHook());
+	}
+}
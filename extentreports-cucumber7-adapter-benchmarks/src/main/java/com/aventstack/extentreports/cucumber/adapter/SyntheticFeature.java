@@ -0,0 +1,267 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.cucumber.plugin.event.DataTableArgument;
+import io.cucumber.plugin.event.DocStringArgument;
+import io.cucumber.plugin.event.Location;
+import io.cucumber.plugin.event.Step;
+import io.cucumber.plugin.event.StepArgument;
+
+/**
+ * A generated feature file, with the test cases Cucumber would create for it,
+ * so that the events of a run can be replayed into the adapter without running
+ * Cucumber. Each scenario has a background step, a plain step, a step with a
+ * data table, a step with a doc string and a last step. The scenario outline
+ * has a test case for each row of its examples.
+ */
+final class SyntheticFeature {
+
+	enum StepKind {
+		BACKGROUND, PLAIN, DATA_TABLE, DOC_STRING
+	}
+
+	private static final String INDENT = "  ";
+	private static final int TABLE_COLUMNS = 4;
+	private static final int DOC_STRING_WIDTH = 60;
+	private static final List<String> FEATURE_TAGS = Arrays.asList("@benchmark", "@replay");
+
+	private final List<String> lines = new ArrayList<>();
+	private final List<Pickle> pickles = new ArrayList<>();
+	private final String source;
+	private int outlineLine;
+
+	SyntheticFeature(int scenarios, int outlineRows, int tableRows, int docStringLength) {
+		line(String.join(" ", FEATURE_TAGS));
+		line("Feature: Synthetic feature");
+		line(INDENT + "Generated to replay the events of a run into the adapter");
+		line("");
+		line(INDENT + "Background:");
+		StepTemplate background = step(StepKind.BACKGROUND, "Given ", "the report is set up");
+
+		for (int i = 1; i <= scenarios; i++) {
+			line("");
+			line(INDENT + "@scenario");
+			int scenarioLine = line(INDENT + "Scenario: scenario " + i);
+			List<StepTemplate> steps = new ArrayList<>();
+			steps.add(background);
+			steps.add(step(StepKind.PLAIN, "Given ", "step " + i));
+			steps.add(tableRows > 0 ? dataTableStep("And ", "a table", tableRows)
+					: step(StepKind.PLAIN, "And ", "a table"));
+			steps.add(docStringLength > 0 ? docStringStep("When ", "a document", docStringLength)
+					: step(StepKind.PLAIN, "When ", "a document"));
+			steps.add(step(StepKind.PLAIN, "Then ", "the scenario ends"));
+			pickles.add(new Pickle("scenario " + i, scenarioLine, tags("@scenario"), steps));
+		}
+
+		if (outlineRows > 0) {
+			line("");
+			line(INDENT + "@outline");
+			outlineLine = line(INDENT + "Scenario Outline: outline <value>");
+			int valueLine = line(INDENT + INDENT + "Given value \"<value>\"");
+			StepTemplate last = step(StepKind.PLAIN, "Then ", "the scenario ends");
+			line("");
+			line(INDENT + INDENT + "Examples:");
+			line(INDENT + INDENT + INDENT + "| value |");
+			for (int i = 1; i <= outlineRows; i++) {
+				int rowLine = line(INDENT + INDENT + INDENT + "| " + i + " |");
+				StepTemplate value = new StepTemplate(StepKind.PLAIN, "Given ", "value \"" + i + "\"", valueLine,
+						null);
+				pickles.add(new Pickle("outline " + i, rowLine, tags("@outline"), Arrays.asList(background, value, last)));
+			}
+		}
+		source = String.join("\n", lines) + "\n";
+	}
+
+	String getSource() {
+		return source;
+	}
+
+	// Zero when the feature has no scenario outline
+	int getOutlineLine() {
+		return outlineLine;
+	}
+
+	int getLineCount() {
+		return lines.size();
+	}
+
+	// The lines of the steps of all the test cases, as these are looked up
+	int[] getStepLines() {
+		return pickles.stream().flatMap(p -> p.steps.stream()).mapToInt(StepTemplate::getLine).toArray();
+	}
+
+	List<SyntheticTestCase> createTestCases(URI uri) {
+		List<SyntheticTestCase> testCases = new ArrayList<>(pickles.size());
+		pickles.forEach(p -> testCases.add(new SyntheticTestCase(uri, p)));
+		return testCases;
+	}
+
+	private int line(String text) {
+		lines.add(text);
+		return lines.size();
+	}
+
+	private static List<String> tags(String tag) {
+		List<String> tags = new ArrayList<>(FEATURE_TAGS);
+		tags.add(tag);
+		return Collections.unmodifiableList(tags);
+	}
+
+	private StepTemplate step(StepKind kind, String keyword, String text) {
+		return new StepTemplate(kind, keyword, text, line(INDENT + INDENT + keyword + text), null);
+	}
+
+	private StepTemplate dataTableStep(String keyword, String text, int rows) {
+		int stepLine = line(INDENT + INDENT + keyword + text);
+		List<List<String>> cells = new ArrayList<>();
+		for (int r = 0; r <= rows; r++) {
+			List<String> row = new ArrayList<>(TABLE_COLUMNS);
+			for (int c = 1; c <= TABLE_COLUMNS; c++) {
+				row.add(r == 0 ? "column " + c : "value " + r + "-" + c);
+			}
+			cells.add(Collections.unmodifiableList(row));
+			line(INDENT + INDENT + INDENT + "| " + String.join(" | ", row) + " |");
+		}
+		return new StepTemplate(StepKind.DATA_TABLE, keyword, text, stepLine,
+				new DataTable(Collections.unmodifiableList(cells), stepLine + 1));
+	}
+
+	private StepTemplate docStringStep(String keyword, String text, int length) {
+		int stepLine = line(INDENT + INDENT + keyword + text);
+		line(INDENT + INDENT + INDENT + "\"\"\"");
+		List<String> contentLines = new ArrayList<>();
+		StringBuilder content = new StringBuilder(length);
+		while (content.length() < length) {
+			content.append("synthetic document text ");
+		}
+		content.setLength(length);
+		for (int i = 0; i < length; i += DOC_STRING_WIDTH) {
+			String contentLine = content.substring(i, Math.min(length, i + DOC_STRING_WIDTH)).trim();
+			contentLines.add(contentLine);
+			line(INDENT + INDENT + INDENT + contentLine);
+		}
+		line(INDENT + INDENT + INDENT + "\"\"\"");
+		return new StepTemplate(StepKind.DOC_STRING, keyword, text, stepLine,
+				new DocString(String.join("\n", contentLines), stepLine + 1));
+	}
+
+	static final class Pickle {
+
+		final String name;
+		final int line;
+		final List<String> tags;
+		final List<StepTemplate> steps;
+
+		private Pickle(String name, int line, List<String> tags, List<StepTemplate> steps) {
+			this.name = name;
+			this.line = line;
+			this.tags = tags;
+			this.steps = steps;
+		}
+
+	}
+
+	// Shared by the test cases of all the rounds of a replay, as these do not change
+	static final class StepTemplate implements Step {
+
+		final StepKind kind;
+		private final String keyword;
+		private final String text;
+		private final int line;
+		private final StepArgument argument;
+
+		private StepTemplate(StepKind kind, String keyword, String text, int line, StepArgument argument) {
+			this.kind = kind;
+			this.keyword = keyword;
+			this.text = text;
+			this.line = line;
+			this.argument = argument;
+		}
+
+		@Override
+		public StepArgument getArgument() {
+			return argument;
+		}
+
+		@Override
+		public String getKeyword() {
+			return keyword;
+		}
+
+		@Override
+		public String getText() {
+			return text;
+		}
+
+		@Override
+		public int getLine() {
+			return line;
+		}
+
+		@Override
+		public Location getLocation() {
+			return new Location(line, INDENT.length() * 2 + 1);
+		}
+
+	}
+
+	private static final class DataTable implements DataTableArgument {
+
+		private final List<List<String>> cells;
+		private final int line;
+
+		private DataTable(List<List<String>> cells, int line) {
+			this.cells = cells;
+			this.line = line;
+		}
+
+		@Override
+		public List<List<String>> cells() {
+			return cells;
+		}
+
+		@Override
+		public int getLine() {
+			return line;
+		}
+
+	}
+
+	private static final class DocString implements DocStringArgument {
+
+		private final String content;
+		private final int line;
+
+		private DocString(String content, int line) {
+			this.content = content;
+			this.line = line;
+		}
+
+		@Override
+		public String getContent() {
+			return content;
+		}
+
+		@Override
+		@Deprecated
+		public String getContentType() {
+			return null;
+		}
+
+		@Override
+		public String getMediaType() {
+			return null;
+		}
+
+		@Override
+		public int getLine() {
+			return line;
+		}
+
+	}
+}
@@ -0,0 +1,213 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.cucumber.plugin.event.Argument;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.HookType;
+import io.cucumber.plugin.event.Location;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Step;
+import io.cucumber.plugin.event.StepArgument;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestStep;
+
+/**
+ * A test case of a synthetic feature, with a before hook, the steps of its
+ * pickle and an after hook, as Cucumber creates it for a run.
+ */
+final class SyntheticTestCase implements TestCase {
+
+	private static final String STEP_CODE_LOCATION = "steps.SyntheticSteps.step(String)";
+
+	private final URI uri;
+	private final SyntheticFeature.Pickle pickle;
+	private final UUID id = randomId();
+	private final Location location;
+	private final List<PickleStepTestStep> pickleSteps = new ArrayList<>();
+	private final Map<SyntheticFeature.StepKind, PickleStepTestStep> stepsByKind = new EnumMap<>(
+			SyntheticFeature.StepKind.class);
+	private final HookTestStep beforeHook = new Hook(HookType.BEFORE, "steps.SyntheticHooks.before()");
+	private final HookTestStep afterHook = new Hook(HookType.AFTER, "steps.SyntheticHooks.after()");
+	private final List<TestStep> testSteps = new ArrayList<>();
+
+	SyntheticTestCase(URI uri, SyntheticFeature.Pickle pickle) {
+		this.uri = uri;
+		this.pickle = pickle;
+		this.location = new Location(pickle.line, 3);
+		for (SyntheticFeature.StepTemplate step : pickle.steps) {
+			PickleStep pickleStep = new PickleStep(uri, step);
+			pickleSteps.add(pickleStep);
+			stepsByKind.putIfAbsent(step.kind, pickleStep);
+		}
+		testSteps.add(beforeHook);
+		testSteps.addAll(pickleSteps);
+		testSteps.add(afterHook);
+	}
+
+	List<PickleStepTestStep> getPickleSteps() {
+		return pickleSteps;
+	}
+
+	// The first step of the kind, null when the pickle has none
+	PickleStepTestStep getStep(SyntheticFeature.StepKind kind) {
+		return stepsByKind.get(kind);
+	}
+
+	HookTestStep getBeforeHook() {
+		return beforeHook;
+	}
+
+	HookTestStep getAfterHook() {
+		return afterHook;
+	}
+
+	@Override
+	@Deprecated
+	public Integer getLine() {
+		return pickle.line;
+	}
+
+	@Override
+	public Location getLocation() {
+		return location;
+	}
+
+	@Override
+	public String getKeyword() {
+		return "Scenario";
+	}
+
+	@Override
+	public String getName() {
+		return pickle.name;
+	}
+
+	@Override
+	@Deprecated
+	public String getScenarioDesignation() {
+		return uri + ":" + pickle.line + " # " + pickle.name;
+	}
+
+	@Override
+	public List<String> getTags() {
+		return pickle.tags;
+	}
+
+	@Override
+	public List<TestStep> getTestSteps() {
+		return Collections.unmodifiableList(testSteps);
+	}
+
+	@Override
+	public URI getUri() {
+		return uri;
+	}
+
+	@Override
+	public UUID getId() {
+		return id;
+	}
+
+	// Not UUID.randomUUID(), which contends on a shared SecureRandom across threads
+	private static UUID randomId() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return new UUID(random.nextLong(), random.nextLong());
+	}
+
+	private static final class PickleStep implements PickleStepTestStep {
+
+		private final URI uri;
+		private final Step step;
+		private final UUID id = randomId();
+
+		private PickleStep(URI uri, Step step) {
+			this.uri = uri;
+			this.step = step;
+		}
+
+		@Override
+		public String getCodeLocation() {
+			return STEP_CODE_LOCATION;
+		}
+
+		@Override
+		public UUID getId() {
+			return id;
+		}
+
+		@Override
+		public String getPattern() {
+			return step.getText();
+		}
+
+		@Override
+		public Step getStep() {
+			return step;
+		}
+
+		@Override
+		public List<Argument> getDefinitionArgument() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		@Deprecated
+		public StepArgument getStepArgument() {
+			return step.getArgument();
+		}
+
+		@Override
+		@Deprecated
+		public int getStepLine() {
+			return step.getLine();
+		}
+
+		@Override
+		public URI getUri() {
+			return uri;
+		}
+
+		@Override
+		@Deprecated
+		public String getStepText() {
+			return step.getText();
+		}
+
+	}
+
+	private static final class Hook implements HookTestStep {
+
+		private final HookType hookType;
+		private final String codeLocation;
+		private final UUID id = randomId();
+
+		private Hook(HookType hookType, String codeLocation) {
+			this.hookType = hookType;
+			this.codeLocation = codeLocation;
+		}
+
+		@Override
+		public String getCodeLocation() {
+			return codeLocation;
+		}
+
+		@Override
+		public UUID getId() {
+			return id;
+		}
+
+		@Override
+		public HookType getHookType() {
+			return hookType;
+		}
+
+	}
+}
@@ -0,0 +1,44 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching a pattern, by default the whole test case
+ * replay, at 1, 2, 4 and so on up to N threads, by default the number of
+ * processors, with the allocation rate from the GC profiler. The JMH command
+ * line of the benchmarks jar runs a single thread count, given by -t.
+ * <p>
+ * Usage: ThreadScaling [pattern] [N]
+ */
+public final class ThreadScaling {
+
+	private ThreadScaling() {
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : ScenarioReplayBenchmark.class.getSimpleName();
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		for (int threads : threadCounts(maxThreads)) {
+			Options options = new OptionsBuilder().include(include).threads(threads).addProfiler(GCProfiler.class)
+					.build();
+			new Runner(options).run();
+		}
+	}
+
+	private static List<Integer> threadCounts(int maxThreads) {
+		List<Integer> counts = new ArrayList<>();
+		for (int threads = 1; threads < maxThreads; threads *= 2) {
+			counts.add(threads);
+		}
+		counts.add(maxThreads);
+		return counts;
+	}
+}
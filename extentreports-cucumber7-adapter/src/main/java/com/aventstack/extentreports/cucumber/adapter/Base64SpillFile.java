@@ -0,0 +1,76 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A temporary file to which the Base64 data URIs of embedded images are
+ * appended, so that these do not stay on the heap till the report is flushed.
+ * Each entry is read back when a reporter asks for it. Space for an entry is
+ * reserved before writing, so entries can be written and read concurrently.
+ */
+class Base64SpillFile {
+
+	private final FileChannel channel;
+	private final AtomicLong size = new AtomicLong(0);
+
+	Base64SpillFile() throws IOException {
+		Path path = Files.createTempFile("extent-base64-", ".spill");
+		path.toFile().deleteOnExit();
+		channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	Entry write(String prefix, byte[] data) {
+		byte[] prefixBytes = prefix.getBytes(StandardCharsets.US_ASCII);
+		byte[] encoded = Base64.getEncoder().encode(data);
+		int length = prefixBytes.length + encoded.length;
+		long position = size.getAndAdd(length);
+		try {
+			write(ByteBuffer.wrap(prefixBytes), position);
+			write(ByteBuffer.wrap(encoded), position + prefixBytes.length);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write to Base64 spill file", e);
+		}
+		return new Entry(position, length);
+	}
+
+	String read(Entry entry) {
+		ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+		try {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, entry.position + buffer.position()) < 0) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read from Base64 spill file", e);
+		}
+		return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+	}
+
+	private void write(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	static class Entry {
+
+		final long position;
+		final int length;
+
+		Entry(long position, int length) {
+			this.position = position;
+			this.length = length;
+		}
+
+	}
+}
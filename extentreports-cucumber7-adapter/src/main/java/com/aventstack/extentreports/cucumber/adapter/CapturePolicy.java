@@ -0,0 +1,54 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.aventstack.extentreports.Status;
+
+/**
+ * Decides when a scenario finishes whether it is kept in the report. The
+ * scenarios with one of the captured statuses are always kept, and only one in
+ * every sample of the others. The scenarios left out are counted by status, so
+ * that the report can still show how many there were.
+ */
+class CapturePolicy {
+
+	// All the scenarios are kept when empty
+	private final Set<Status> capturedStatuses;
+	// None of the other scenarios are kept when zero
+	private final int sample;
+	private final AtomicLong others = new AtomicLong(0);
+	private final Map<Status, LongAdder> leftOut = new ConcurrentHashMap<>();
+
+	CapturePolicy(Collection<Status> capturedStatuses, int sample) {
+		this.capturedStatuses = capturedStatuses.isEmpty() ? EnumSet.noneOf(Status.class)
+				: EnumSet.copyOf(capturedStatuses);
+		this.sample = sample;
+	}
+
+	boolean isEnabled() {
+		return !capturedStatuses.isEmpty();
+	}
+
+	boolean keep(Status status) {
+		if (!isEnabled() || capturedStatuses.contains(status))
+			return true;
+		if (sample > 0 && others.getAndIncrement() % sample == 0)
+			return true;
+
+		leftOut.computeIfAbsent(status, s -> new LongAdder()).increment();
+		return false;
+	}
+
+	Map<Status, Long> getLeftOutCounts() {
+		Map<Status, Long> counts = new TreeMap<>();
+		leftOut.forEach((status, count) -> counts.put(status, count.sum()));
+		return counts;
+	}
+}
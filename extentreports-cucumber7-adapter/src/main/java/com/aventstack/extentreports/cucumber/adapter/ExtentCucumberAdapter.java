@@ -1,22 +1,21 @@
 package com.aventstack.extentreports.cucumber.adapter;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.aventstack.extentreports.ExtentTest;
@@ -24,12 +23,15 @@ import com.aventstack.extentreports.GherkinKeyword;
 import com.aventstack.extentreports.MediaEntityBuilder;
 import com.aventstack.extentreports.Status;
 import com.aventstack.extentreports.gherkin.model.Asterisk;
-import com.aventstack.extentreports.gherkin.model.ScenarioOutline;
 import com.aventstack.extentreports.markuputils.MarkupHelper;
+import com.aventstack.extentreports.model.NamedAttribute;
+import com.aventstack.extentreports.model.Report;
+import com.aventstack.extentreports.model.SystemEnvInfo;
 import com.aventstack.extentreports.model.Test;
+import com.aventstack.extentreports.model.context.NamedAttributeContext;
+import com.aventstack.extentreports.model.context.NamedAttributeContextManager;
 import com.aventstack.extentreports.service.ExtentService;
 
-import io.cucumber.core.exception.CucumberException;
 import io.cucumber.messages.types.Feature;
 import io.cucumber.messages.types.Scenario;
 import io.cucumber.messages.types.Examples;
@@ -47,6 +49,7 @@ import io.cucumber.plugin.event.PickleStepTestStep;
 import io.cucumber.plugin.event.Result;
 import io.cucumber.plugin.event.StepArgument;
 import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
 import io.cucumber.plugin.event.TestCaseStarted;
 import io.cucumber.plugin.event.TestRunFinished;
 import io.cucumber.plugin.event.TestSourceRead;
@@ -62,15 +65,19 @@ import io.cucumber.plugin.event.WriteEvent;
  */
 public class ExtentCucumberAdapter implements ConcurrentEventListener {
 
-	private static Map<Feature, ExtentTest> featureMap = new ConcurrentHashMap<>();
-	private static ThreadLocal<ExtentTest> featureTestThreadLocal = new InheritableThreadLocal<>();
-	private static Map<Scenario, ExtentTest> scenarioOutlineMap = new ConcurrentHashMap<>();
-	private static ThreadLocal<ExtentTest> scenarioOutlineThreadLocal = new InheritableThreadLocal<>();
-	private static ThreadLocal<ExtentTest> scenarioThreadLocal = new InheritableThreadLocal<>();
-	private static ThreadLocal<Boolean> isHookThreadLocal = new InheritableThreadLocal<>();
-	private static ThreadLocal<ExtentTest> stepTestThreadLocal = new InheritableThreadLocal<>();
-	private static ThreadLocal<Set<String>> featureTagsThreadLocal = new InheritableThreadLocal<>();
-	private static ThreadLocal<Set<String>> scenarioOutlineTagsThreadLocal = new InheritableThreadLocal<>();
+	// Keyed by the feature uri, and the line within it, as the Gherkin messages
+	// are compared by value, which walks the whole tree of the feature. The
+	// entries of a feature are released once all its scenarios have finished.
+	private static Map<URI, ExtentTest> featureMap = new ConcurrentHashMap<>();
+	private static Map<URI, Map<Long, ExtentTest>> scenarioOutlineMap = new ConcurrentHashMap<>();
+	private static Map<URI, Set<Long>> examplesMap = new ConcurrentHashMap<>();
+	private static volatile boolean isFeatureStarted = false;
+	private static volatile String gherkinDialect;
+	private static ThreadLocal<ScenarioContext> scenarioContextThreadLocal = new InheritableThreadLocal<>();
+	// The test list and the category, device, author and exception contexts of
+	// the report are shared by all the scenarios, and are not guarded by the
+	// report when tests are removed from them.
+	private static final Object REPORT_LOCK = new Object();
 
 	@SuppressWarnings("serial")
 	private static final Map<String, String> MIME_TYPES_EXTENSIONS = new HashMap<String, String>() {
@@ -87,13 +94,43 @@ public class ExtentCucumberAdapter implements ConcurrentEventListener {
 		}
 	};
 
-	private static final AtomicInteger EMBEDDED_INT = new AtomicInteger(0);
+	private static final ReportMetrics METRICS = new ReportMetrics();
+
+	// Only available when the asynchronous reporting mode is enabled
+	private static final ReportEventQueue EVENT_QUEUE = ExtentService.isAsyncEnabled()
+			? new ReportEventQueue(ExtentService.getAsyncQueueSize(), METRICS)
+			: null;
+
+	private static final MediaStore MEDIA_STORE = new MediaStore(
+			new MediaWriter(ExtentService.getMediaWriterThreads(), ExtentService.getMediaWriterQueueSize(), METRICS),
+			ExtentService.isBase64ImageSpillEnabled(), METRICS);
+
+	private static final TagClassifier TAG_CLASSIFIER = new TagClassifier(
+			ExtentService.isDeviceEnabled() ? ExtentService.getDevicePrefix() : null,
+			ExtentService.isAuthorEnabled() ? ExtentService.getAuthorPrefix() : null);
+
+	private static final CapturePolicy CAPTURE_POLICY = new CapturePolicy(ExtentService.getCaptureStatuses(),
+			ExtentService.getCaptureSample());
+
+	private static final StepArgumentMarkup STEP_ARGUMENT_MARKUP = new StepArgumentMarkup(
+			ExtentService.getStepArgumentMaxRows(), ExtentService.getStepArgumentMaxLength(),
+			ExtentService.isStepArgumentSpillEnabled() ? MEDIA_STORE : null);
+
+	static {
+		METRICS.setStartup(ExtentService.getStartupMillis(), ExtentService::getReporterStartupDurations);
+		if (ExtentService.isMetricsEnabled()) {
+			METRICS.register();
+		}
+		if (ExtentService.getFlushInterval() > 0) {
+			scheduleProgressFlush(ExtentService.getFlushInterval());
+		}
+	}
 
 	private final TestSourcesModel testSources = new TestSourcesModel();
 
-	private ThreadLocal<URI> currentFeatureFile = new ThreadLocal<>();
-	private ThreadLocal<Scenario> currentScenarioOutline = new InheritableThreadLocal<>();
-	private ThreadLocal<Examples> currentExamples = new InheritableThreadLocal<>();
+	// Events of a test case are routed to its own context, so building the node
+	// tree of one scenario never waits on another scenario.
+	private final Map<UUID, ScenarioContext> scenarioContextMap = new ConcurrentHashMap<>();
 
 	private EventHandler<TestSourceRead> testSourceReadHandler = new EventHandler<TestSourceRead>() {
 		@Override
@@ -107,28 +144,44 @@ public class ExtentCucumberAdapter implements ConcurrentEventListener {
 			handleTestCaseStarted(event);
 		}
 	};
+	private EventHandler<TestCaseFinished> caseFinishedHandler = new EventHandler<TestCaseFinished>() {
+		@Override
+		public void receive(TestCaseFinished event) {
+			// Published by the thread which ran the test case, which no longer keeps
+			// the nodes of the scenario reachable till it starts the next one
+			ScenarioContext context = getScenarioContext(event.getTestCase());
+			if (scenarioContextThreadLocal.get() == context) {
+				scenarioContextThreadLocal.remove();
+			}
+			report("TestCaseFinished", context, () -> handleTestCaseFinished(event));
+		}
+	};
 	private EventHandler<TestStepStarted> stepStartedHandler = new EventHandler<TestStepStarted>() {
 		@Override
 		public void receive(TestStepStarted event) {
-			handleTestStepStarted(event);
+			ScenarioContext context = getScenarioContext(event.getTestCase());
+			report("TestStepStarted", context, () -> handleTestStepStarted(context, event));
 		}
 	};
 	private EventHandler<TestStepFinished> stepFinishedHandler = new EventHandler<TestStepFinished>() {
 		@Override
 		public void receive(TestStepFinished event) {
-			handleTestStepFinished(event);
+			ScenarioContext context = getScenarioContext(event.getTestCase());
+			report("TestStepFinished", context, () -> handleTestStepFinished(context, event));
 		}
 	};
 	private EventHandler<EmbedEvent> embedEventhandler = new EventHandler<EmbedEvent>() {
 		@Override
 		public void receive(EmbedEvent event) {
-			handleEmbed(event);
+			ScenarioContext context = getScenarioContext(event.getTestCase());
+			report("EmbedEvent", context, () -> handleEmbed(context, event));
 		}
 	};
 	private EventHandler<WriteEvent> writeEventhandler = new EventHandler<WriteEvent>() {
 		@Override
 		public void receive(WriteEvent event) {
-			handleWrite(event);
+			ScenarioContext context = getScenarioContext(event.getTestCase());
+			report("WriteEvent", context, () -> handleWrite(context, event));
 		}
 	};
 	private EventHandler<TestRunFinished> runFinishedHandler = new EventHandler<TestRunFinished>() {
@@ -146,6 +199,7 @@ public class ExtentCucumberAdapter implements ConcurrentEventListener {
 	public void setEventPublisher(EventPublisher publisher) {
 		publisher.registerHandlerFor(TestSourceRead.class, testSourceReadHandler);
 		publisher.registerHandlerFor(TestCaseStarted.class, caseStartedHandler);
+		publisher.registerHandlerFor(TestCaseFinished.class, caseFinishedHandler);
 		publisher.registerHandlerFor(TestStepStarted.class, stepStartedHandler);
 		publisher.registerHandlerFor(TestStepFinished.class, stepFinishedHandler);
 		publisher.registerHandlerFor(EmbedEvent.class, embedEventhandler);
@@ -154,71 +208,246 @@ public class ExtentCucumberAdapter implements ConcurrentEventListener {
 	}
 
 	private void handleTestSourceRead(TestSourceRead event) {
+		long start = System.nanoTime();
 		testSources.addTestSourceReadEvent(event.getUri(), event);
+		METRICS.recordEvent("TestSourceRead", System.nanoTime() - start);
+	}
+
+	private void handleTestCaseStarted(TestCaseStarted event) {
+		ScenarioContext context = new ScenarioContext();
+		scenarioContextMap.put(event.getTestCase().getId(), context);
+		scenarioContextThreadLocal.set(context);
+
+		report("TestCaseStarted", () -> {
+			createFeature(context, event.getTestCase());
+			long waitStart = System.nanoTime();
+			synchronized (context.getLock()) {
+				METRICS.recordLockWait(System.nanoTime() - waitStart);
+				handleScenarioOutline(context, event.getTestCase());
+				createTestCase(context, event.getTestCase());
+			}
+		});
+	}
+
+	private void handleTestCaseFinished(TestCaseFinished event) {
+		ScenarioContext context = scenarioContextMap.remove(event.getTestCase().getId());
+		// Only decided once the scenario is complete, as its status is not known before
+		if (context != null && context.scenarioTest != null
+				&& !CAPTURE_POLICY.keep(convertToStatus(event.getResult()))) {
+			removeTest(context.scenarioTest);
+		}
+		if (testSources.finishTestCase(event.getTestCase().getUri())) {
+			releaseFeature(event.getTestCase().getUri());
+		}
+	}
+
+	// The nodes stay in the report, only the lookups of the feature are dropped
+	private static void releaseFeature(URI uri) {
+		if (CAPTURE_POLICY.isEnabled()) {
+			removeEmptyNodes(uri);
+		}
+		featureMap.remove(uri);
+		scenarioOutlineMap.remove(uri);
+		examplesMap.remove(uri);
+	}
+
+	private static Status convertToStatus(Result result) {
+		switch (result.getStatus().name().toLowerCase()) {
+		case "passed":
+			return Status.PASS;
+		case "skipped":
+		case "unused":
+			return Status.SKIP;
+		default:
+			return Status.FAIL;
+		}
+	}
+
+	private ScenarioContext getScenarioContext(TestCase testCase) {
+		return scenarioContextMap.get(testCase.getId());
+	}
+
+	private static void report(String event, Runnable update) {
+		Runnable timedUpdate = () -> {
+			long start = System.nanoTime();
+			try {
+				update.run();
+			} finally {
+				METRICS.recordEvent(event, System.nanoTime() - start);
+			}
+		};
+		if (EVENT_QUEUE == null) {
+			timedUpdate.run();
+		} else {
+			EVENT_QUEUE.submit(timedUpdate);
+		}
+	}
+
+	// The report propagates the status of a node up to its feature without
+	// locking, so the updates of the scenarios of a feature are applied one at
+	// a time. Different features are still updated in parallel.
+	private static void report(String event, ScenarioContext context, Runnable update) {
+		if (context == null) {
+			report(event, update);
+			return;
+		}
+		report(event, () -> {
+			long waitStart = System.nanoTime();
+			synchronized (context.getLock()) {
+				METRICS.recordLockWait(System.nanoTime() - waitStart);
+				update.run();
+			}
+		});
+	}
+
+	// Lets the callers of the static methods see the nodes of the events
+	// published so far, when these are being reported asynchronously.
+	private static void awaitReport() {
+		if (EVENT_QUEUE != null) {
+			EVENT_QUEUE.drain();
+		}
+	}
+
+	// Features and scenario outlines with all their scenarios left out
+	private static void removeEmptyNodes(URI uri) {
+		scenarioOutlineMap.getOrDefault(uri, Collections.emptyMap()).values().stream()
+				.filter(t -> t.getModel().getChildren().isEmpty())
+				.forEach(t -> removeTest(t));
+		ExtentTest featureTest = featureMap.get(uri);
+		if (featureTest != null && featureTest.getModel().getChildren().isEmpty())
+			removeTest(featureTest);
+	}
+
+	// Unlinked from its parent, and from the contexts of its own attributes,
+	// instead of searching the whole report for it as ExtentReports does. The
+	// contexts are refreshed when the report is flushed.
+	private static void removeTest(ExtentTest test) {
+		Test model = test.getModel();
+		Report report = ExtentService.getInstance().getReport();
+		long waitStart = System.nanoTime();
+		synchronized (REPORT_LOCK) {
+			METRICS.recordLockWait(System.nanoTime() - waitStart);
+			if (model.getParent() == null) {
+				report.getTestList().remove(model);
+			} else {
+				model.getParent().getChildren().remove(model);
+			}
+			removeFromContexts(report.getAuthorCtx(), model.getAuthorSet(), model);
+			removeFromContexts(report.getCategoryCtx(), model.getCategorySet(), model);
+			removeFromContexts(report.getDeviceCtx(), model.getDeviceSet(), model);
+		}
+	}
+
+	private static <T extends NamedAttribute> void removeFromContexts(NamedAttributeContextManager<T> contexts,
+			Set<T> attributes, Test test) {
+		if (attributes.isEmpty())
+			return;
+		Set<String> names = attributes.stream().map(NamedAttribute::getName).collect(Collectors.toSet());
+		for (Iterator<NamedAttributeContext<T>> it = contexts.getSet().iterator(); it.hasNext();) {
+			NamedAttributeContext<T> context = it.next();
+			if (names.contains(context.getAttr().getName()) && context.getTestList().remove(test)
+					&& context.getTestList().isEmpty()) {
+				it.remove();
+			}
+		}
+	}
+
+	// The exception is added to the exception context of the report
+	private static void log(ExtentTest test, Status status, Throwable t) {
+		long waitStart = System.nanoTime();
+		synchronized (REPORT_LOCK) {
+			METRICS.recordLockWait(System.nanoTime() - waitStart);
+			test.log(status, t);
+		}
+	}
+
+	// Updated in place when more than one runner finishes in the same run
+	private static void setSystemInfo(String name, String value) {
+		Optional<SystemEnvInfo> info = ExtentService.getInstance().getReport().getSystemEnvInfo().stream()
+				.filter(i -> name.equals(i.getName())).findFirst();
+		if (info.isPresent()) {
+			info.get().setValue(value);
+		} else {
+			ExtentService.getInstance().setSystemInfo(name, value);
+		}
 	}
 
-	private synchronized void handleTestCaseStarted(TestCaseStarted event) {
-		handleStartOfFeature(event.getTestCase());
-		handleScenarioOutline(event.getTestCase());
-		createTestCase(event.getTestCase());
+	private static void scheduleProgressFlush(int intervalSeconds) {
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread t = new Thread(r, "extent-progress-flush");
+			t.setDaemon(true);
+			return t;
+		});
+		// In the asynchronous mode the flush is queued behind the pending events,
+		// so that the tests are not modified while the reports are written.
+		scheduler.scheduleWithFixedDelay(() -> report("IntermediateFlush", ExtentService::flushProgress), intervalSeconds,
+				intervalSeconds, TimeUnit.SECONDS);
 	}
 
-	private synchronized void handleTestStepStarted(TestStepStarted event) {
-		isHookThreadLocal.set(false);
+	private void handleTestStepStarted(ScenarioContext context, TestStepStarted event) {
+		context.isHook = false;
 
 		if (event.getTestStep() instanceof HookTestStep) {
-			ExtentTest t = scenarioThreadLocal.get().createNode(Asterisk.class, event.getTestStep().getCodeLocation(),
-					(((HookTestStep) event.getTestStep()).getHookType()).toString().toUpperCase());
-			stepTestThreadLocal.set(t);
-			isHookThreadLocal.set(true);
+			// Created on the first log, media or failure of the hook, see getStepTest()
+			context.pendingHook = (HookTestStep) event.getTestStep();
+			context.stepTest = null;
+			context.isHook = true;
 		}
 
 		if (event.getTestStep() instanceof PickleStepTestStep) {
 			PickleStepTestStep testStep = (PickleStepTestStep) event.getTestStep();
-			createTestStep(testStep);
+			createTestStep(context, testStep);
 		}
 	}
 
-	private synchronized void handleTestStepFinished(TestStepFinished event) {
-		updateResult(event.getResult());
+	private void handleTestStepFinished(ScenarioContext context, TestStepFinished event) {
+		updateResult(context, event.getResult());
 	}
 
-	private synchronized void updateResult(Result result) {
-		Test test = stepTestThreadLocal.get().getModel();
+	private void updateResult(ScenarioContext context, Result result) {
+		// A hook which passed or was skipped without reporting anything is left out
+		if (context.isHook && context.stepTest == null && result.getStatus().isOk()) {
+			context.pendingHook = null;
+			return;
+		}
+
+		ExtentTest stepTest = getStepTest(context);
+		Test test = stepTest.getModel();
 		switch (result.getStatus().name().toLowerCase()) {
 		case "failed":
-			stepTestThreadLocal.get().fail(result.getError());
+			log(stepTest, Status.FAIL, result.getError());
 			break;
 		case "undefined":
-			stepTestThreadLocal.get().fail("Step undefined");
+			stepTest.fail("Step undefined");
 			break;
 		case "pending":
-			stepTestThreadLocal.get().fail(result.getError());
+			log(stepTest, Status.FAIL, result.getError());
 			break;
 		case "skipped":
-			if (isHookThreadLocal.get()) {
-				ExtentService.getInstance().removeTest(stepTestThreadLocal.get());
+			if (context.isHook) {
+				removeTest(stepTest);
 				break;
 			}
 			boolean currentEndingEventSkipped = test.hasLog()
 					? test.getLogs().get(test.getLogs().size() - 1).getStatus() == Status.SKIP
 					: false;
 			if (result.getError() != null) {
-				stepTestThreadLocal.get().skip(result.getError());
+				log(stepTest, Status.SKIP, result.getError());
 			} else if (!currentEndingEventSkipped) {
 				String details = result.getError() == null ? "Step skipped" : result.getError().getMessage();
-				stepTestThreadLocal.get().skip(details);
+				stepTest.skip(details);
 			}
 			break;
 		case "passed":
-			if (stepTestThreadLocal.get() != null) {
-				if (isHookThreadLocal.get()) {
-					boolean mediaLogs = !test.getLogs().stream().filter(l -> l.getMedia() != null)
-							.collect(Collectors.toList()).isEmpty();
-					if (!test.hasLog() && !mediaLogs)
-						ExtentService.getInstance().removeTest(stepTestThreadLocal.get());
+			if (stepTest != null) {
+				// Only created for the current step, and nothing was logged
+				if (context.isHook && !test.hasLog())
+					removeTest(stepTest);
+				if (ExtentService.isCompactStepEnabled()) {
+					endPassedStep(test);
+				} else {
+					stepTest.pass("");
 				}
-				stepTestThreadLocal.get().pass("");
 			}
 			break;
 		default:
@@ -226,261 +455,218 @@ public class ExtentCucumberAdapter implements ConcurrentEventListener {
 		}
 	}
 
-	private synchronized void handleEmbed(EmbedEvent event) {
+	// The status of a test is pass till a worse log is added, so only the end
+	// time is updated, as adding the empty pass log does
+	private static void endPassedStep(Test test) {
+		if (!test.isUseNaturalConf())
+			return;
+		Date endTime = new Date();
+		for (Test t = test; t != null; t = t.getParent()) {
+			t.setEndTime(endTime);
+		}
+	}
+
+	private void handleEmbed(ScenarioContext context, EmbedEvent event) {
 
 		String mimeType = event.getMediaType();
 		String extension = MIME_TYPES_EXTENSIONS.get(mimeType);
 		if (extension != null) {
-			if (stepTestThreadLocal.get() == null) {
-				ExtentTest t = scenarioThreadLocal.get().createNode(Asterisk.class, "Embed");
-				stepTestThreadLocal.set(t);
+			if (getStepTest(context) == null) {
+				ExtentTest t = context.scenarioTest.createNode(Asterisk.class, "Embed");
+				context.stepTest = t;
 			}
 
 			String title = event.getName() == null ? "" : event.getName();
 			if (ExtentService.isBase64ImageSrcEnabled() && mimeType.startsWith("image/")) {
-				stepTestThreadLocal.get().info(title, MediaEntityBuilder
-						.createScreenCaptureFromBase64String(Base64.getEncoder().encodeToString(event.getData()))
-						.build());
+				context.stepTest.info(title, MEDIA_STORE.storeBase64(event.getData()));
 			} else {
-				StringBuilder fileName = new StringBuilder("embedded").append(EMBEDDED_INT.incrementAndGet())
-						.append(".").append(extension);
-				try {
-					URL url = toUrl(fileName.toString());
-					writeBytesToURL(event.getData(), url);
-					try {
-						File file = new File(url.toURI());
-						stepTestThreadLocal.get().info(title,
-								MediaEntityBuilder
-										.createScreenCaptureFromPath(
-												ExtentService.getScreenshotReportRelatvePath() + file.getName())
-										.build());
-					} catch (URISyntaxException e) {
-						e.printStackTrace();
-					}
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
+				String fileName = MEDIA_STORE.storeFile(event.getData(), extension);
+				context.stepTest.info(title, MediaEntityBuilder
+						.createScreenCaptureFromPath(ExtentService.getScreenshotReportRelatvePath() + fileName).build());
 			}
 		}
 	}
 
-	private static void writeBytesToURL(byte[] buf, URL url) throws IOException {
-		OutputStream out = createReportFileOutputStream(url);
-		try {
-			out.write(buf);
-		} catch (IOException e) {
-			throw new IOException("Unable to write to report file item: ", e);
+	private static ExtentTest getStepTest(ScenarioContext context) {
+		if (context.stepTest == null && context.pendingHook != null) {
+			HookTestStep hook = context.pendingHook;
+			context.stepTest = context.scenarioTest.createNode(Asterisk.class, hook.getCodeLocation(),
+					hook.getHookType().toString().toUpperCase());
+			context.pendingHook = null;
 		}
+		return context.stepTest;
 	}
 
-	private static OutputStream createReportFileOutputStream(URL url) {
-		try {
-			return new URLOutputStream(url);
-		} catch (IOException | URISyntaxException e) {
-			throw new CucumberException(e);
-		}
-	}
-
-	private URL toUrl(String fileName) {
-		try {
-			URL url = Paths.get(ExtentService.getScreenshotFolderName(), fileName).toUri().toURL();
-			return url;
-		} catch (IOException e) {
-			throw new CucumberException(e);
-		}
-	}
-
-	private synchronized void handleWrite(WriteEvent event) {
+	private void handleWrite(ScenarioContext context, WriteEvent event) {
 		String text = event.getText();
 		if (text != null && !text.isEmpty()) {
-			stepTestThreadLocal.get().info(text);
+			getStepTest(context).info(text);
 		}
 	}
 
 	private void finishReport() {
+		awaitReport();
+		MEDIA_STORE.drain();
+		// Features with filtered scenarios are only released at the end
+		testSources.getPaths().forEach(ExtentCucumberAdapter::releaseFeature);
+		testSources.clear();
+		if (CAPTURE_POLICY.isEnabled()) {
+			CAPTURE_POLICY.getLeftOutCounts()
+					.forEach((status, count) -> setSystemInfo("Scenarios Left Out - " + status, String.valueOf(count)));
+		}
+		long start = System.nanoTime();
 		ExtentService.flush();
-	}
-
-	private synchronized void handleStartOfFeature(TestCase testCase) {
-		if (currentFeatureFile == null || !currentFeatureFile.equals(testCase.getUri())) {
-			currentFeatureFile.set(testCase.getUri());
-			createFeature(testCase);
+		METRICS.recordFlush(System.nanoTime() - start, ExtentService.getReporterFlushDurations());
+		if (ExtentService.isMetricsEnabled()) {
+			METRICS.writeSummary(ExtentService.getMetricsOutputPath());
 		}
 	}
 
-	private synchronized void createFeature(TestCase testCase) {
-		Feature feature = testSources.getFeature(testCase.getUri());
-		try {
-			ExtentService.getInstance().setGherkinDialect(feature.getLanguage());
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
+	private void createFeature(ScenarioContext context, TestCase testCase) {
+		// Kept for the lookups of the scenario and its steps
+		context.featureSource = testSources.getFeatureSource(testCase.getUri());
+		Feature feature = context.featureSource == null ? null : context.featureSource.getFeature();
+		// Usually the same for all the features of a run
+		if (feature != null && !feature.getLanguage().equals(gherkinDialect)) {
+			try {
+				ExtentService.getInstance().setGherkinDialect(feature.getLanguage());
+				gherkinDialect = feature.getLanguage();
+			} catch (UnsupportedEncodingException e) {
+				e.printStackTrace();
+			}
 		}
 
 		if (feature != null) {
-			if (featureMap.containsKey(feature)) {
-				featureTestThreadLocal.set(featureMap.get(feature));
+			URI uri = testCase.getUri();
+			context.featureTest = featureMap.get(uri);
+			if (context.featureTest != null)
 				return;
-			}
-			/*
-			 * if (featureTestThreadLocal.get() != null &&
-			 * featureTestThreadLocal.get().getModel().getName().equals(feature.getName()))
-			 * { return; }
-			 */
-			ExtentTest t = ExtentService.getInstance().createTest(
-					com.aventstack.extentreports.gherkin.model.Feature.class, feature.getName(),
-					feature.getDescription());
-			featureTestThreadLocal.set(t);
-			featureMap.put(feature, t);
 
-			Set<String> tagList = feature.getTags().stream().map(tag -> tag.getName()).collect(Collectors.toSet());
-			featureTagsThreadLocal.set(tagList);
+			// Starting a new feature usually means the previous one is complete
+			if (ExtentService.isFlushOnFeatureEnabled() && isFeatureStarted) {
+				ExtentService.flushProgress();
+			}
+			isFeatureStarted = true;
+			// The feature node is shared by all its scenarios, create it only once
+			context.featureTest = featureMap.computeIfAbsent(uri, u -> {
+				long waitStart = System.nanoTime();
+				synchronized (REPORT_LOCK) {
+					METRICS.recordLockWait(System.nanoTime() - waitStart);
+					return ExtentService.getInstance().createTest(
+							com.aventstack.extentreports.gherkin.model.Feature.class, feature.getName(),
+							feature.getDescription());
+				}
+			});
 		}
 	}
 
-	private synchronized void handleScenarioOutline(TestCase testCase) {
-		TestSourcesModel.AstNode astNode = testSources.getAstNode(currentFeatureFile.get(),
-				testCase.getLocation().getLine());
+	private void handleScenarioOutline(ScenarioContext context, TestCase testCase) {
+		TestSourcesModel.AstNode astNode = getAstNode(context, testCase.getLocation().getLine());
 		Scenario scenarioDefinition = TestSourcesModel.getScenarioDefinition(astNode);
 
-		// if (scenarioDefinition.getKeyword().equals("Scenario Outline")) {
 		if (!scenarioDefinition.getExamples().isEmpty()) {
-			if (currentScenarioOutline.get() == null || !scenarioOutlineMap.containsKey(scenarioDefinition)
-			/*
-			 * ||
-			 * !currentScenarioOutline.get().getName().equals(scenarioDefinition.getName())
-			 */) {
-				scenarioOutlineThreadLocal.set(null);
-				createScenarioOutline(scenarioDefinition);
-				currentScenarioOutline.set(scenarioDefinition);
-			}
+			createScenarioOutline(context, testCase.getUri(), scenarioDefinition);
 			Examples examples = (Examples) astNode.parent.node;
-			if (currentExamples.get() == null || !currentExamples.get().equals(examples)) {
-				currentExamples.set(examples);
-				createExamples(examples);
+			if (examplesMap.computeIfAbsent(testCase.getUri(), u -> ConcurrentHashMap.newKeySet())
+					.add(examples.getLocation().getLine())) {
+				createExamples(context.scenarioOutlineTest, examples);
 			}
-		} else {
-			scenarioOutlineThreadLocal.set(null);
-			currentScenarioOutline.set(null);
-			currentExamples.set(null);
 		}
 	}
 
-	private synchronized void createScenarioOutline(Scenario scenarioOutline) {
-		if (scenarioOutlineMap.containsKey(scenarioOutline)) {
-			scenarioOutlineThreadLocal.set(scenarioOutlineMap.get(scenarioOutline));
-			return;
-		}
-		if (scenarioOutlineThreadLocal.get() == null) {
-			ExtentTest t = featureTestThreadLocal.get().createNode(
-					com.aventstack.extentreports.gherkin.model.ScenarioOutline.class, scenarioOutline.getName(),
-					scenarioOutline.getDescription());
-			scenarioOutlineThreadLocal.set(t);
-			scenarioOutlineMap.put(scenarioOutline, t);
+	private static TestSourcesModel.AstNode getAstNode(ScenarioContext context, int line) {
+		return context.featureSource == null ? null : context.featureSource.getAstNode(line);
+	}
 
-			Set<String> tagList = scenarioOutline.getTags().stream().map(tag -> tag.getName())
-					.collect(Collectors.toSet());
-			scenarioOutlineTagsThreadLocal.set(tagList);
-		}
+	private void createScenarioOutline(ScenarioContext context, URI uri, Scenario scenarioOutline) {
+		context.scenarioOutlineTest = scenarioOutlineMap.computeIfAbsent(uri, u -> new ConcurrentHashMap<>())
+				.computeIfAbsent(scenarioOutline.getLocation().getLine(),
+						l -> context.featureTest.createNode(
+								com.aventstack.extentreports.gherkin.model.ScenarioOutline.class,
+								scenarioOutline.getName(), scenarioOutline.getDescription()));
 	}
 
-	private void createExamples(Examples examples) {
-		List<TableRow> rows = new ArrayList<>();
-		rows.add(examples.getTableHeader());
-		rows.addAll(examples.getTableBody());
-		String[][] data = getTable(rows);
-		String markup = MarkupHelper.createTable(data).getMarkup();
+	private void createExamples(ExtentTest scenarioOutlineTest, Examples examples) {
+		// Rendered once per examples, and outside the lock of the outline
+		String markup = MarkupHelper.createTable(getTable(examples)).getMarkup();
 		if (examples.getName() != null && !examples.getName().isEmpty()) {
 			markup = examples.getName() + markup;
 		}
-		markup = (scenarioOutlineThreadLocal.get().getModel().getDescription() == null ? ""
-				: scenarioOutlineThreadLocal.get().getModel().getDescription() + "<br><br>") + markup;
-		scenarioOutlineThreadLocal.get().getModel().setDescription(markup);
+		// Examples of an outline can be encountered by different threads
+		synchronized (scenarioOutlineTest) {
+			Test outline = scenarioOutlineTest.getModel();
+			outline.setDescription(
+					outline.getDescription() == null ? markup : outline.getDescription() + "<br><br>" + markup);
+		}
 	}
 
-	private String[][] getTable(List<TableRow> rows) {
-		String data[][] = null;
-		int rowSize = rows.size();
-		for (int i = 0; i < rowSize; i++) {
-			TableRow row = rows.get(i);
-			List<TableCell> cells = row.getCells();
-			int cellSize = cells.size();
-			if (data == null) {
-				data = new String[rowSize][cellSize];
-			}
-			for (int j = 0; j < cellSize; j++) {
-				data[i][j] = cells.get(j).getValue();
-			}
+	private String[][] getTable(Examples examples) {
+		List<TableRow> body = examples.getTableBody();
+		String[][] data = new String[body.size() + 1][];
+		data[0] = getCells(examples.getTableHeader());
+		for (int i = 0; i < body.size(); i++) {
+			data[i + 1] = getCells(body.get(i));
 		}
 		return data;
 	}
 
-	private synchronized void createTestCase(TestCase testCase) {
-		TestSourcesModel.AstNode astNode = testSources.getAstNode(currentFeatureFile.get(),
-				testCase.getLocation().getLine());
+	private String[] getCells(TableRow row) {
+		List<TableCell> cells = row.getCells();
+		String[] values = new String[cells.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = cells.get(i).getValue();
+		}
+		return values;
+	}
+
+	private void createTestCase(ScenarioContext context, TestCase testCase) {
+		TestSourcesModel.AstNode astNode = getAstNode(context, testCase.getLocation().getLine());
 		if (astNode != null) {
 			Scenario scenarioDefinition = TestSourcesModel.getScenarioDefinition(astNode);
-			ExtentTest parent = scenarioOutlineThreadLocal.get() != null ? scenarioOutlineThreadLocal.get()
-					: featureTestThreadLocal.get();
+			ExtentTest parent = context.scenarioOutlineTest != null ? context.scenarioOutlineTest
+					: context.featureTest;
 			ExtentTest t = parent.createNode(com.aventstack.extentreports.gherkin.model.Scenario.class,
 					testCase.getName(), scenarioDefinition.getDescription());
-			scenarioThreadLocal.set(t);
+			context.scenarioTest = t;
 		}
+		// Includes the tags of the feature, rule, scenario outline and examples
 		if (!testCase.getTags().isEmpty()) {
-			// testCase.getTags().forEach(x -> scenarioThreadLocal.get().assignCategory(x));
-			updateCategoryAndDeviceAndAuthor(testCase.getTags());
-		}
-		if (featureTagsThreadLocal.get() != null) {
-			// featureTagsThreadLocal.get().forEach(x ->
-			// scenarioThreadLocal.get().assignCategory(x));
-			updateCategoryAndDeviceAndAuthor(featureTagsThreadLocal.get());
-		}
-
-		Test parent = scenarioThreadLocal.get().getModel().getParent();
-		if (parent.getBddType() == ScenarioOutline.class && scenarioOutlineTagsThreadLocal.get() != null) {
-			// scenarioOutlineTagsThreadLocal.get().forEach(x ->
-			// scenarioThreadLocal.get().assignCategory(x));
-			updateCategoryAndDeviceAndAuthor(scenarioOutlineTagsThreadLocal.get());
+			updateCategoryAndDeviceAndAuthor(context, testCase.getTags());
 		}
 	}
 
-	private void updateCategoryAndDeviceAndAuthor(Collection<String> tags) {
-		tags.forEach(t -> {
-			if (ExtentService.isDeviceEnabled() && isValidDeviceTag(t)) {
-
-				scenarioThreadLocal.get().assignDevice(t.substring(ExtentService.getDevicePrefix().length()));
-			} else if (ExtentService.isAuthorEnabled() && isValidAuthoTag(t)) {
-
-				scenarioThreadLocal.get().assignAuthor(t.substring(ExtentService.getAuthorPrefix().length()));
-			} else
-				scenarioThreadLocal.get().assignCategory(t);
-		});
-	}
-
-	private boolean isValidDeviceTag(String tag) {
-		if (tag.startsWith(ExtentService.getDevicePrefix()) && tag.length() > ExtentService.getDevicePrefix().length())
-			return true;
-		return false;
-	}
-
-	private boolean isValidAuthoTag(String tag) {
-		if (tag.startsWith(ExtentService.getAuthorPrefix()) && tag.length() > ExtentService.getAuthorPrefix().length())
-			return true;
-		return false;
+	private void updateCategoryAndDeviceAndAuthor(ScenarioContext context, Collection<String> tags) {
+		long waitStart = System.nanoTime();
+		synchronized (REPORT_LOCK) {
+			METRICS.recordLockWait(System.nanoTime() - waitStart);
+			tags.forEach(t -> {
+				TagClassifier.Tag tag = TAG_CLASSIFIER.classify(t);
+				switch (tag.getKind()) {
+				case DEVICE:
+					context.scenarioTest.assignDevice(tag.getValue());
+					break;
+				case AUTHOR:
+					context.scenarioTest.assignAuthor(tag.getValue());
+					break;
+				default:
+					context.scenarioTest.assignCategory(tag.getValue());
+				}
+			});
+		}
 	}
 
-	private synchronized void createTestStep(PickleStepTestStep testStep) {
+	private void createTestStep(ScenarioContext context, PickleStepTestStep testStep) {
 		String stepName = testStep.getStep().getText();
-		TestSourcesModel.AstNode astNode = testSources.getAstNode(currentFeatureFile.get(),
-				testStep.getStep().getLine());
+		TestSourcesModel.AstNode astNode = getAstNode(context, testStep.getStep().getLine());
 		if (astNode != null) {
 			Step step = (Step) astNode.node;
 			try {
 				String name = stepName == null || stepName.isEmpty()
 						? step.getText().replace("<", "&lt;").replace(">", "&gt;")
 						: stepName;
-				ExtentTest t = scenarioThreadLocal.get().createNode(new GherkinKeyword(step.getKeyword().trim()),
+				ExtentTest t = context.scenarioTest.createNode(new GherkinKeyword(step.getKeyword().trim()),
 						step.getKeyword() + name, testStep.getCodeLocation());
-				stepTestThreadLocal.set(t);
+				context.stepTest = t;
 			} catch (ClassNotFoundException e) {
 				e.printStackTrace();
 			}
@@ -488,49 +674,67 @@ public class ExtentCucumberAdapter implements ConcurrentEventListener {
 		StepArgument argument = testStep.getStep().getArgument();
 		if (argument != null) {
 			if (argument instanceof DocStringArgument) {
-				stepTestThreadLocal.get()
-						.pass(MarkupHelper.createCodeBlock(((DocStringArgument) argument).getContent()));
+				context.stepTest.pass(STEP_ARGUMENT_MARKUP.createDocString((DocStringArgument) argument));
 			} else if (argument instanceof DataTableArgument) {
-				stepTestThreadLocal.get()
-						.pass(MarkupHelper.createTable(createDataTableList((DataTableArgument) argument)));
+				context.stepTest.pass(STEP_ARGUMENT_MARKUP.createDataTable((DataTableArgument) argument));
 			}
 		}
 	}
 
-	private String[][] createDataTableList(DataTableArgument dataTable) {
-		List<List<String>> cells = dataTable.cells();
-		int rowSize = cells.size();
-		int cellSize = cells.get(0).size();
-		String[][] data = new String[rowSize][cellSize];
-
-		for (int i = 0; i < rowSize; i++) {
-			for (int j = 0; j < cellSize; j++)
-				data[i][j] = cells.get(i).get(j);
-		}
-		return data;
-	}
-
 	// the below additions are from PR #33
 	// https://github.com/extent-framework/extentreports-cucumber4-adapter/pull/33
-	public static synchronized void addTestStepLog(String message) {
-		stepTestThreadLocal.get().info(message);
+	public static void addTestStepLog(String message) {
+		ScenarioContext context = scenarioContextThreadLocal.get();
+		report("TestStepLog", context, () -> getStepTest(context).info(message));
 	}
 
-	public static synchronized void addTestStepScreenCaptureFromPath(String imagePath) throws IOException {
-		stepTestThreadLocal.get().addScreenCaptureFromPath(imagePath);
+	public static void addTestStepScreenCaptureFromPath(String imagePath) throws IOException {
+		ScenarioContext context = scenarioContextThreadLocal.get();
+		report("TestStepScreenCapture", context, () -> getStepTest(context).addScreenCaptureFromPath(imagePath));
 	}
 
-	public static synchronized void addTestStepScreenCaptureFromPath(String imagePath, String title)
-			throws IOException {
-		stepTestThreadLocal.get().addScreenCaptureFromPath(imagePath, title);
+	public static void addTestStepScreenCaptureFromPath(String imagePath, String title) throws IOException {
+		ScenarioContext context = scenarioContextThreadLocal.get();
+		report("TestStepScreenCapture", context, () -> getStepTest(context).addScreenCaptureFromPath(imagePath, title));
 	}
 
 	public static ExtentTest getCurrentStep() {
-		return stepTestThreadLocal.get();
+		ScenarioContext context = scenarioContextThreadLocal.get();
+		if (context == null)
+			return null;
+		// A pending hook node is created with the other updates of the model
+		report("CurrentStep", context, () -> getStepTest(context));
+		awaitReport();
+		return context.stepTest;
 	}
 
 	public static ExtentTest getCurrentScenario() {
-		return scenarioThreadLocal.get();
+		awaitReport();
+		ScenarioContext context = scenarioContextThreadLocal.get();
+		return context == null ? null : context.scenarioTest;
+	}
+
+	/**
+	 * Report nodes of a single running test case. The events of a test case are
+	 * applied in order, either by the thread executing it or by the asynchronous
+	 * report queue, under the lock of its feature.
+	 */
+	private static class ScenarioContext {
+
+		private TestSourcesModel.FeatureSource featureSource;
+		private ExtentTest featureTest;
+		private ExtentTest scenarioOutlineTest;
+		private ExtentTest scenarioTest;
+		private ExtentTest stepTest;
+		private boolean isHook;
+		// Hook started, but not yet added to the report
+		private HookTestStep pendingHook;
+
+		// The feature node is the root of the statuses updated by the scenario
+		private Object getLock() {
+			return featureTest != null ? featureTest : this;
+		}
+
 	}
 
 }
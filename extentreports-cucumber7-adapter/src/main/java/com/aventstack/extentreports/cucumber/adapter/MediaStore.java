@@ -0,0 +1,128 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.aventstack.extentreports.MediaEntityBuilder;
+import com.aventstack.extentreports.model.Media;
+import com.aventstack.extentreports.service.ExtentService;
+
+/**
+ * Stores every distinct embedded media payload only once. Payloads are keyed by
+ * their SHA-256 digest, so an image attached again and again is written to a
+ * single file, or encoded to a single Base64 string, which all the report
+ * entries refer to. When enabled, the Base64 strings are spilled to a temporary
+ * file instead of being kept on the heap till the report is flushed.
+ */
+class MediaStore {
+
+	private static final String EMBEDDED_PREFIX = "embedded";
+	// Same prefix the media builder adds, so the cached string is used as is
+	private static final String BASE64_PREFIX = "data:image/png;base64,";
+
+	private final MediaWriter writer;
+	private final Map<String, CompletableFuture<Void>> fileWrites = new ConcurrentHashMap<>();
+	private final Map<String, String> base64Strings = new ConcurrentHashMap<>();
+	private final Map<String, Base64SpillFile.Entry> spillEntries = new ConcurrentHashMap<>();
+	private final Base64SpillFile spillFile;
+	private final ReportMetrics metrics;
+
+	MediaStore(MediaWriter writer, boolean spillBase64, ReportMetrics metrics) {
+		this.writer = writer;
+		this.metrics = metrics;
+		this.spillFile = spillBase64 ? createSpillFile() : null;
+	}
+
+	/**
+	 * Returns the name of the file in the screenshot folder containing the data.
+	 * The file is only written if the same data has not been stored before.
+	 */
+	String storeFile(byte[] data, String extension) {
+		String fileName = EMBEDDED_PREFIX + digest(data) + "." + extension;
+		CompletableFuture<Void> write = new CompletableFuture<>();
+		CompletableFuture<Void> written = fileWrites.putIfAbsent(fileName, write);
+		if (written == null) {
+			writer.write(Paths.get(ExtentService.getScreenshotFolderName(), fileName), data).whenComplete((v, t) -> {
+				// Written again by the next embed of the same data
+				if (t != null) {
+					fileWrites.remove(fileName, write);
+				}
+				write.complete(null);
+			});
+			written = write;
+		} else {
+			metrics.recordDuplicateMedia();
+		}
+		// Klov uploads the media file as soon as it is added to the test
+		if (ExtentService.isKlovEnabled()) {
+			written.join();
+		}
+		return fileName;
+	}
+
+	Media storeBase64(byte[] data) {
+		String digest = digest(data);
+		if (spillFile != null) {
+			try {
+				Base64SpillFile.Entry entry = spillEntries.get(digest);
+				if (entry == null) {
+					entry = spillEntries.computeIfAbsent(digest, d -> {
+						Base64SpillFile.Entry e = spillFile.write(BASE64_PREFIX, data);
+						metrics.recordBase64Stored(e.length);
+						return e;
+					});
+				} else {
+					metrics.recordDuplicateMedia();
+				}
+				return new SpilledScreenCapture(spillFile, entry);
+			} catch (UncheckedIOException e) {
+				e.printStackTrace();
+			}
+		}
+		String base64 = base64Strings.get(digest);
+		if (base64 == null) {
+			base64 = base64Strings.computeIfAbsent(digest, d -> {
+				String b = BASE64_PREFIX + Base64.getEncoder().encodeToString(data);
+				metrics.recordBase64Stored(b.length());
+				return b;
+			});
+		} else {
+			metrics.recordDuplicateMedia();
+		}
+		return MediaEntityBuilder.createScreenCaptureFromBase64String(base64).build();
+	}
+
+	void drain() {
+		writer.drain();
+	}
+
+	private static Base64SpillFile createSpillFile() {
+		try {
+			return new Base64SpillFile();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private static String digest(byte[] data) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+			StringBuilder hex = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes embedded media files on a bounded pool of worker threads. When all the
+ * workers are busy and the queue is full, the media is written by the calling
+ * thread. Each file is opened, written and closed by a single task.
+ */
+class MediaWriter {
+
+	private final ThreadPoolExecutor executor;
+	private final Set<CompletableFuture<Void>> pendingWrites = ConcurrentHashMap.newKeySet();
+	private final ReportMetrics metrics;
+
+	MediaWriter(int threads, int queueSize, ReportMetrics metrics) {
+		this.metrics = metrics;
+		AtomicInteger threadCount = new AtomicInteger(0);
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), r -> {
+					Thread t = new Thread(r, "extent-media-writer-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Completes exceptionally when the file could not be written.
+	 */
+	CompletableFuture<Void> write(Path path, byte[] data) {
+		CompletableFuture<Void> write = CompletableFuture.runAsync(() -> writeFile(path, data), executor);
+		pendingWrites.add(write);
+		write.whenComplete((v, t) -> pendingWrites.remove(write));
+		return write;
+	}
+
+	/**
+	 * Waits till all the media submitted before this call has been written.
+	 */
+	void drain() {
+		// The failed writes have already been reported
+		CompletableFuture.allOf(pendingWrites.toArray(new CompletableFuture<?>[0])).exceptionally(t -> null).join();
+	}
+
+	private void writeFile(Path path, byte[] data) {
+		try {
+			if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			metrics.recordMediaWritten(data.length);
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A bounded queue of report updates applied to the Extent model by a single
+ * consumer thread. The Cucumber threads only enqueue the updates, they block
+ * when the queue is full, even when interrupted, so no update is lost. Updates
+ * are applied in the order they are enqueued, so the events of a test case are
+ * processed in the order they were published.
+ */
+class ReportEventQueue {
+
+	private final BlockingQueue<Runnable> queue;
+	private final Thread consumer;
+	private final ReportMetrics metrics;
+
+	ReportEventQueue(int capacity, ReportMetrics metrics) {
+		queue = new ArrayBlockingQueue<>(capacity);
+		this.metrics = metrics;
+		metrics.setQueueDepth(queue::size);
+		consumer = new Thread(this::consume, "extent-report-events");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	void submit(Runnable update) {
+		if (!queue.offer(update)) {
+			long start = System.nanoTime();
+			putUninterruptibly(update);
+			metrics.recordQueueWait(System.nanoTime() - start);
+		}
+		metrics.recordQueueDepth(queue.size());
+	}
+
+	// A test thread interrupted by a timeout still waits for room in the queue,
+	// as a lost update would put the later events of its test case on the wrong
+	// node. The interrupt is restored once the update is enqueued.
+	private void putUninterruptibly(Runnable update) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				queue.put(update);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits till all the updates enqueued before this call have been applied.
+	 */
+	void drain() {
+		CountDownLatch latch = new CountDownLatch(1);
+		submit(latch::countDown);
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void consume() {
+		while (true) {
+			try {
+				queue.take().run();
+			} catch (InterruptedException e) {
+				return;
+			} catch (Throwable t) {
+				t.printStackTrace();
+			}
+		}
+	}
+}
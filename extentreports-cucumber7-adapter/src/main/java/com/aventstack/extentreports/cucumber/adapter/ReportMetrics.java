@@ -0,0 +1,282 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Counters and timings of the time spent by the adapter on reporting. These are
+ * always recorded, as the cost is a few atomic additions per event, and are
+ * only exposed through JMX and the summary file when the metrics are enabled.
+ */
+class ReportMetrics implements ReportMetricsMXBean {
+
+	private static final String OBJECT_NAME = "com.aventstack.extentreports.cucumber.adapter:type=ReportMetrics";
+
+	private final Map<String, EventStats> events = new ConcurrentHashMap<>();
+	private final AtomicInteger maxQueueDepth = new AtomicInteger(0);
+	private final LongAdder queueWaitNanos = new LongAdder();
+	private final LongAdder lockWaitNanos = new LongAdder();
+	private final LongAdder mediaFiles = new LongAdder();
+	private final LongAdder mediaBytes = new LongAdder();
+	private final LongAdder base64Images = new LongAdder();
+	private final LongAdder base64Bytes = new LongAdder();
+	private final LongAdder duplicateMedia = new LongAdder();
+	private volatile long flushNanos;
+	private volatile Map<String, Long> reporterFlushMillis = Collections.emptyMap();
+	private volatile IntSupplier queueDepth = () -> 0;
+	private volatile long startupMillis;
+	private volatile Supplier<Map<String, Long>> reporterStartupMillis = Collections::emptyMap;
+
+	void recordEvent(String event, long nanos) {
+		events.computeIfAbsent(event, e -> new EventStats()).record(nanos);
+	}
+
+	void setQueueDepth(IntSupplier queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	void recordQueueDepth(int depth) {
+		maxQueueDepth.accumulateAndGet(depth, Math::max);
+	}
+
+	void recordQueueWait(long nanos) {
+		queueWaitNanos.add(nanos);
+	}
+
+	void recordLockWait(long nanos) {
+		lockWaitNanos.add(nanos);
+	}
+
+	void recordMediaWritten(int bytes) {
+		mediaFiles.increment();
+		mediaBytes.add(bytes);
+	}
+
+	void recordBase64Stored(int bytes) {
+		base64Images.increment();
+		base64Bytes.add(bytes);
+	}
+
+	void recordDuplicateMedia() {
+		duplicateMedia.increment();
+	}
+
+	// The reporters are created in the background, so read when asked for
+	void setStartup(long startupMillis, Supplier<Map<String, Long>> reporterStartupMillis) {
+		this.startupMillis = startupMillis;
+		this.reporterStartupMillis = reporterStartupMillis;
+	}
+
+	void recordFlush(long nanos, Map<String, Long> reporterFlushMillis) {
+		this.flushNanos = nanos;
+		this.reporterFlushMillis = new TreeMap<>(reporterFlushMillis);
+	}
+
+	void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (InstanceAlreadyExistsException e) {
+			// Registered by the adapter of another class loader
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+
+	void writeSummary(String path) {
+		Map<String, Object> events = new LinkedHashMap<>();
+		new TreeMap<>(this.events).forEach((name, stats) -> {
+			Map<String, Object> event = new LinkedHashMap<>();
+			event.put("count", stats.count.sum());
+			event.put("totalMillis", toMillis(stats.totalNanos.sum()));
+			event.put("maxMillis", toMillis(stats.maxNanos.get()));
+			event.put("p99Millis", toMillis(stats.p99Nanos()));
+			events.put(name, event);
+		});
+
+		Map<String, Object> queue = new LinkedHashMap<>();
+		queue.put("maxDepth", getMaxQueueDepth());
+		queue.put("waitMillis", getQueueWaitMillis());
+
+		Map<String, Object> media = new LinkedHashMap<>();
+		media.put("filesWritten", getMediaFilesWritten());
+		media.put("bytesWritten", getMediaBytesWritten());
+		media.put("base64Images", getBase64ImagesStored());
+		media.put("base64Bytes", getBase64BytesStored());
+		media.put("duplicatesSkipped", getDuplicateMediaSkipped());
+
+		Map<String, Object> flush = new LinkedHashMap<>();
+		flush.put("millis", getFlushMillis());
+		flush.put("reporterMillis", getReporterFlushMillis());
+
+		Map<String, Object> startup = new LinkedHashMap<>();
+		startup.put("millis", getStartupMillis());
+		startup.put("reporterMillis", getReporterStartupMillis());
+
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("startup", startup);
+		summary.put("events", events);
+		summary.put("queue", queue);
+		summary.put("lockWaitMillis", getLockWaitMillis());
+		summary.put("media", media);
+		summary.put("flush", flush);
+
+		try {
+			Path file = Paths.get(path);
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			Files.write(file, new GsonBuilder().setPrettyPrinting().create().toJson(summary)
+					.getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public Map<String, Long> getEventCounts() {
+		return eventValues(stats -> stats.count.sum());
+	}
+
+	@Override
+	public Map<String, Double> getEventTotalMillis() {
+		return eventValues(stats -> toMillis(stats.totalNanos.sum()));
+	}
+
+	@Override
+	public Map<String, Double> getEventMaxMillis() {
+		return eventValues(stats -> toMillis(stats.maxNanos.get()));
+	}
+
+	@Override
+	public Map<String, Double> getEventP99Millis() {
+		return eventValues(stats -> toMillis(stats.p99Nanos()));
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return queueDepth.getAsInt();
+	}
+
+	@Override
+	public int getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	@Override
+	public double getQueueWaitMillis() {
+		return toMillis(queueWaitNanos.sum());
+	}
+
+	@Override
+	public double getLockWaitMillis() {
+		return toMillis(lockWaitNanos.sum());
+	}
+
+	@Override
+	public long getMediaFilesWritten() {
+		return mediaFiles.sum();
+	}
+
+	@Override
+	public long getMediaBytesWritten() {
+		return mediaBytes.sum();
+	}
+
+	@Override
+	public long getBase64ImagesStored() {
+		return base64Images.sum();
+	}
+
+	@Override
+	public long getBase64BytesStored() {
+		return base64Bytes.sum();
+	}
+
+	@Override
+	public long getDuplicateMediaSkipped() {
+		return duplicateMedia.sum();
+	}
+
+	@Override
+	public long getStartupMillis() {
+		return startupMillis;
+	}
+
+	@Override
+	public Map<String, Long> getReporterStartupMillis() {
+		return new TreeMap<>(reporterStartupMillis.get());
+	}
+
+	@Override
+	public double getFlushMillis() {
+		return toMillis(flushNanos);
+	}
+
+	@Override
+	public Map<String, Long> getReporterFlushMillis() {
+		return reporterFlushMillis;
+	}
+
+	private <T> Map<String, T> eventValues(Function<EventStats, T> value) {
+		Map<String, T> values = new TreeMap<>();
+		events.forEach((name, stats) -> values.put(name, value.apply(stats)));
+		return values;
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	private static class EventStats {
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong(0);
+		// Counts by power of two microseconds, bucket n holds times below 2^n
+		private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+		void record(long nanos) {
+			count.increment();
+			totalNanos.add(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+			buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(TimeUnit.NANOSECONDS.toMicros(nanos)));
+		}
+
+		// Upper bound of the bucket containing the 99th percentile
+		long p99Nanos() {
+			long total = count.sum();
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if (seen > 0 && seen >= total * 0.99) {
+					return Math.min(TimeUnit.MICROSECONDS.toNanos(1L << i), maxNanos.get());
+				}
+			}
+			return maxNanos.get();
+		}
+
+	}
+}
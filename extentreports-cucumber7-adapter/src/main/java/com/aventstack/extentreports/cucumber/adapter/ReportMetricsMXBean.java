@@ -0,0 +1,45 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.util.Map;
+
+/**
+ * Reporting overhead of the adapter, exposed through JMX when the metrics are
+ * enabled. Event metrics are keyed by the Cucumber event type, times are in
+ * milliseconds.
+ */
+public interface ReportMetricsMXBean {
+
+	Map<String, Long> getEventCounts();
+
+	Map<String, Double> getEventTotalMillis();
+
+	Map<String, Double> getEventMaxMillis();
+
+	Map<String, Double> getEventP99Millis();
+
+	int getQueueDepth();
+
+	int getMaxQueueDepth();
+
+	double getQueueWaitMillis();
+
+	double getLockWaitMillis();
+
+	long getMediaFilesWritten();
+
+	long getMediaBytesWritten();
+
+	long getBase64ImagesStored();
+
+	long getBase64BytesStored();
+
+	long getDuplicateMediaSkipped();
+
+	long getStartupMillis();
+
+	Map<String, Long> getReporterStartupMillis();
+
+	double getFlushMillis();
+
+	Map<String, Long> getReporterFlushMillis();
+}
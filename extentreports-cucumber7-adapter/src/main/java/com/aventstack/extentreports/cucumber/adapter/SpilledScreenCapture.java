@@ -0,0 +1,28 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import com.aventstack.extentreports.model.ScreenCapture;
+
+/**
+ * A Base64 screen capture whose data URI is kept in a {@link Base64SpillFile}
+ * and only read when a reporter renders it. As the string is not stored in a
+ * field, reporters which serialize the fields directly, like the json
+ * formatter, do not contain the image.
+ */
+class SpilledScreenCapture extends ScreenCapture {
+
+	private static final long serialVersionUID = 4190164322961542519L;
+
+	private final transient Base64SpillFile spillFile;
+	private final transient Base64SpillFile.Entry entry;
+
+	SpilledScreenCapture(Base64SpillFile spillFile, Base64SpillFile.Entry entry) {
+		super(null, null, null, null);
+		this.spillFile = spillFile;
+		this.entry = entry;
+	}
+
+	@Override
+	public String getBase64() {
+		return spillFile.read(entry);
+	}
+}
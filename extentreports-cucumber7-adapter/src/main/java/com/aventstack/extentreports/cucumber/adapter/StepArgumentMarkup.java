@@ -0,0 +1,87 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.aventstack.extentreports.markuputils.MarkupHelper;
+import com.aventstack.extentreports.service.ExtentService;
+
+import io.cucumber.plugin.event.DataTableArgument;
+import io.cucumber.plugin.event.DocStringArgument;
+
+/**
+ * Creates the markup of the DataTable and DocString arguments of a step. Above
+ * the configured limits, only the first rows or characters are shown. When
+ * enabled, the full argument is written once to a text file in the screenshot
+ * folder, which is linked from the report.
+ */
+class StepArgumentMarkup {
+
+	private static final String SPILL_EXTENSION = "txt";
+
+	// No limit when zero
+	private final int maxRows;
+	private final int maxLength;
+	// Only available when the full arguments are spilled to files
+	private final MediaStore mediaStore;
+
+	StepArgumentMarkup(int maxRows, int maxLength, MediaStore mediaStore) {
+		this.maxRows = maxRows;
+		this.maxLength = maxLength;
+		this.mediaStore = mediaStore;
+	}
+
+	String createDocString(DocStringArgument docString) {
+		String content = docString.getContent();
+		if (maxLength == 0 || content.length() <= maxLength) {
+			return MarkupHelper.createCodeBlock(content).getMarkup();
+		}
+
+		return MarkupHelper.createCodeBlock(content.substring(0, maxLength)).getMarkup()
+				+ truncated(content.length() - maxLength, "characters", content);
+	}
+
+	String createDataTable(DataTableArgument dataTable) {
+		List<List<String>> cells = dataTable.cells();
+		if (maxRows == 0 || cells.size() <= maxRows) {
+			return MarkupHelper.createTable(getTable(cells, cells.size())).getMarkup();
+		}
+
+		return MarkupHelper.createTable(getTable(cells, maxRows)).getMarkup()
+				+ truncated(cells.size() - maxRows, "rows", toText(cells));
+	}
+
+	private String truncated(int remaining, String unit, String fullText) {
+		String markup = "<p>... " + remaining + " more " + unit;
+		if (mediaStore != null) {
+			String fileName = mediaStore.storeFile(fullText.getBytes(StandardCharsets.UTF_8), SPILL_EXTENSION);
+			markup += " - <a href='" + ExtentService.getScreenshotReportRelatvePath() + fileName
+					+ "' target='_blank'>full argument</a>";
+		}
+		return markup + "</p>";
+	}
+
+	private static String[][] getTable(List<List<String>> cells, int rowSize) {
+		int cellSize = cells.get(0).size();
+		String[][] data = new String[rowSize][cellSize];
+
+		for (int i = 0; i < rowSize; i++) {
+			for (int j = 0; j < cellSize; j++)
+				data[i][j] = cells.get(i).get(j);
+		}
+		return data;
+	}
+
+	// Same layout as the table in the feature file
+	private static String toText(List<List<String>> cells) {
+		StringBuilder text = new StringBuilder();
+		for (List<String> row : cells) {
+			text.append('|');
+			for (String cell : row) {
+				text.append(' ').append(cell).append(" |");
+			}
+			text.append(System.lineSeparator());
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,61 @@
+package com.aventstack.extentreports.cucumber.adapter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sorts scenario tags into categories, devices and authors, by the prefixes
+ * set up when the adapter is created. A tag is classified only the first time
+ * it is seen, later scenarios get the same result from the cache.
+ */
+class TagClassifier {
+
+	enum Kind {
+		CATEGORY, DEVICE, AUTHOR
+	}
+
+	static class Tag {
+
+		private final Kind kind;
+		private final String value;
+
+		private Tag(Kind kind, String value) {
+			this.kind = kind;
+			this.value = value;
+		}
+
+		Kind getKind() {
+			return kind;
+		}
+
+		String getValue() {
+			return value;
+		}
+	}
+
+	// Null when the tags are not used for the devices or authors
+	private final String devicePrefix;
+	private final String authorPrefix;
+	private final Map<String, Tag> tags = new ConcurrentHashMap<>();
+
+	TagClassifier(String devicePrefix, String authorPrefix) {
+		this.devicePrefix = devicePrefix;
+		this.authorPrefix = authorPrefix;
+	}
+
+	Tag classify(String tag) {
+		return tags.computeIfAbsent(tag, this::createTag);
+	}
+
+	private Tag createTag(String tag) {
+		if (hasPrefix(tag, devicePrefix))
+			return new Tag(Kind.DEVICE, tag.substring(devicePrefix.length()));
+		if (hasPrefix(tag, authorPrefix))
+			return new Tag(Kind.AUTHOR, tag.substring(authorPrefix.length()));
+		return new Tag(Kind.CATEGORY, tag);
+	}
+
+	private static boolean hasPrefix(String tag, String prefix) {
+		return prefix != null && tag.startsWith(prefix) && tag.length() > prefix.length();
+	}
+}
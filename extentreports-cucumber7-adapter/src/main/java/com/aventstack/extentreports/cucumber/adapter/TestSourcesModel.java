@@ -17,12 +17,14 @@ import io.cucumber.plugin.event.TestSourceRead;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 //import static io.cucumber.gherkin.Gherkin.makeSourceEnvelope;
 import static io.cucumber.core.gherkin.messages.internal.gherkin.Gherkin.makeSourceEnvelope;
@@ -31,9 +33,12 @@ import static java.util.stream.Collectors.toList;
 
 final class TestSourcesModel {
 
-	private final Map<URI, TestSourceRead> pathToReadEventMap = new HashMap<>();
-	private final Map<URI, GherkinDocument> pathToAstMap = new HashMap<>();
-	private final Map<URI, Map<Long, AstNode>> pathToNodeMap = new HashMap<>();
+	// Ids of the parsed nodes, required by the parser, the lookups use the lines
+	private static final AtomicLong NODE_ID = new AtomicLong(0);
+
+	// Each source is parsed once in the background as soon as it is read, the
+	// lookups of the scenarios then only read the completed result.
+	private final Map<URI, CompletableFuture<FeatureSource>> pathToFeatureSourceMap = new ConcurrentHashMap<>();
 
 	static Scenario getScenarioDefinition(AstNode astNode) {
 		AstNode candidate = astNode;
@@ -90,130 +95,177 @@ final class TestSourcesModel {
 	}
 
 	void addTestSourceReadEvent(URI path, TestSourceRead event) {
-		pathToReadEventMap.put(path, event);
+		String source = event.getSource();
+		pathToFeatureSourceMap.computeIfAbsent(path,
+				p -> CompletableFuture.supplyAsync(() -> createFeatureSource(p, source)));
 	}
 
-	Feature getFeature(URI path) {
-		if (!pathToAstMap.containsKey(path)) {
-			parseGherkinSource(path);
-		}
-		if (pathToAstMap.containsKey(path)) {
-			return pathToAstMap.get(path).getFeature();
-		}
-		return null;
+	// Waits only if the source is still being parsed. The result can be kept by
+	// the caller for the lookups of the steps of a test case.
+	FeatureSource getFeatureSource(URI path) {
+		CompletableFuture<FeatureSource> featureSource = pathToFeatureSourceMap.get(path);
+		return featureSource == null ? null : featureSource.join();
 	}
 
-	private void parseGherkinSource(URI path) {
-		if (!pathToReadEventMap.containsKey(path)) {
-			return;
+	// Returns true, and releases the parsed source, once as many test cases have
+	// finished as the feature can contain. Fewer run when the pickles are
+	// filtered, the source is then only released by clear().
+	boolean finishTestCase(URI path) {
+		FeatureSource featureSource = getFeatureSource(path);
+		if (featureSource == null || featureSource.finishedCount.incrementAndGet() < featureSource.pickleCount) {
+			return false;
 		}
-		String source = pathToReadEventMap.get(path).getSource();
+		return pathToFeatureSourceMap.remove(path) != null;
+	}
+
+	Set<URI> getPaths() {
+		return pathToFeatureSourceMap.keySet();
+	}
+
+	void clear() {
+		pathToFeatureSourceMap.clear();
+	}
 
+	private static FeatureSource createFeatureSource(URI path, String source) {
 		List<Envelope> sources = singletonList(makeSourceEnvelope(source, path.toString()));
 
+		// Only the document is needed, the pickles are compiled by Cucumber
 		List<Envelope> envelopes = Gherkin
-				.fromSources(sources, true, true, true, () -> String.valueOf(UUID.randomUUID())).collect(toList());
+				.fromSources(sources, false, true, false, () -> String.valueOf(NODE_ID.incrementAndGet()))
+				.collect(toList());
 
 		GherkinDocument gherkinDocument = envelopes.stream().map(Envelope::getGherkinDocument).filter(Objects::nonNull)
 				.findFirst().orElse(null);
 
-		pathToAstMap.put(path, gherkinDocument);
-		Map<Long, AstNode> nodeMap = new HashMap<>();
+		// Indexed by line number, the locations are within the lines of the source
+		AstNode[] lineNodes = new AstNode[lineCount(source) + 1];
 		AstNode currentParent = new AstNode(gherkinDocument.getFeature(), null);
 		for (FeatureChild child : gherkinDocument.getFeature().getChildren()) {
-			processFeatureDefinition(nodeMap, child, currentParent);
+			processFeatureDefinition(lineNodes, child, currentParent);
 		}
-		pathToNodeMap.put(path, nodeMap);
+		return new FeatureSource(gherkinDocument, lineNodes, countPickles(gherkinDocument.getFeature()));
+	}
 
+	private static int countPickles(Feature feature) {
+		int count = 0;
+		for (FeatureChild child : feature.getChildren()) {
+			if (child.getScenario() != null) {
+				count += countPickles(child.getScenario());
+			} else if (child.getRule() != null) {
+				for (RuleChild ruleChild : child.getRule().getChildren()) {
+					if (ruleChild.getScenario() != null) {
+						count += countPickles(ruleChild.getScenario());
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	// A scenario is one pickle, an outline one for each examples row
+	private static int countPickles(Scenario scenario) {
+		if (scenario.getExamples().isEmpty()) {
+			return 1;
+		}
+		int count = 0;
+		for (Examples examples : scenario.getExamples()) {
+			count += examples.getTableBody().size();
+		}
+		return count;
 	}
 
-	private void processFeatureDefinition(Map<Long, AstNode> nodeMap, FeatureChild child, AstNode currentParent) {
+	// Lines end as in the Gherkin scanner, at a \n, a \r or a \r\n
+	private static int lineCount(String source) {
+		int count = 1;
+		for (int i = 0; i < source.length(); i++) {
+			char c = source.charAt(i);
+			if (c == '\r' && i + 1 < source.length() && source.charAt(i + 1) == '\n') {
+				i++;
+			}
+			if (c == '\r' || c == '\n') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void processFeatureDefinition(AstNode[] lineNodes, FeatureChild child, AstNode currentParent) {
 		if (child.getBackground() != null) {
-			processBackgroundDefinition(nodeMap, child.getBackground(), currentParent);
+			processBackgroundDefinition(lineNodes, child.getBackground(), currentParent);
 		} else if (child.getScenario() != null) {
-			processScenarioDefinition(nodeMap, child.getScenario(), currentParent);
+			processScenarioDefinition(lineNodes, child.getScenario(), currentParent);
 		} else if (child.getRule() != null) {
 			AstNode childNode = new AstNode(child.getRule(), currentParent);
-			nodeMap.put(child.getRule().getLocation().getLine(), childNode);
+			lineNodes[child.getRule().getLocation().getLine().intValue()] = childNode;
 			for (RuleChild ruleChild : child.getRule().getChildren()) {
-				processRuleDefinition(nodeMap, ruleChild, childNode);
+				processRuleDefinition(lineNodes, ruleChild, childNode);
 			}
 		}
 	}
 
-	private void processBackgroundDefinition(Map<Long, AstNode> nodeMap, Background background, AstNode currentParent) {
+	private static void processBackgroundDefinition(AstNode[] lineNodes, Background background, AstNode currentParent) {
 		AstNode childNode = new AstNode(background, currentParent);
-		nodeMap.put(background.getLocation().getLine(), childNode);
+		lineNodes[background.getLocation().getLine().intValue()] = childNode;
 		for (Step step : background.getSteps()) {
-			nodeMap.put(step.getLocation().getLine(), new AstNode(step, childNode));
+			lineNodes[step.getLocation().getLine().intValue()] = new AstNode(step, childNode);
 		}
 	}
 
-	private void processScenarioDefinition(Map<Long, AstNode> nodeMap, Scenario child, AstNode currentParent) {
+	private static void processScenarioDefinition(AstNode[] lineNodes, Scenario child, AstNode currentParent) {
 		AstNode childNode = new AstNode(child, currentParent);
-		nodeMap.put(child.getLocation().getLine(), childNode);
+		lineNodes[child.getLocation().getLine().intValue()] = childNode;
 		for (io.cucumber.messages.types.Step step : child.getSteps()) {
-			nodeMap.put(step.getLocation().getLine(), new AstNode(step, childNode));
+			lineNodes[step.getLocation().getLine().intValue()] = new AstNode(step, childNode);
 		}
 		if (!child.getExamples().isEmpty()) {
-			processScenarioOutlineExamples(nodeMap, child, childNode);
+			processScenarioOutlineExamples(lineNodes, child, childNode);
 		}
 	}
 
-	private void processRuleDefinition(Map<Long, AstNode> nodeMap, RuleChild child, AstNode currentParent) {
+	private static void processRuleDefinition(AstNode[] lineNodes, RuleChild child, AstNode currentParent) {
 		if (child.getBackground() != null) {
-			processBackgroundDefinition(nodeMap, child.getBackground(), currentParent);
+			processBackgroundDefinition(lineNodes, child.getBackground(), currentParent);
 		} else if (child.getScenario() != null) {
-			processScenarioDefinition(nodeMap, child.getScenario(), currentParent);
+			processScenarioDefinition(lineNodes, child.getScenario(), currentParent);
 		}
 	}
 
-	private void processScenarioOutlineExamples(Map<Long, AstNode> nodeMap, Scenario scenarioOutline, AstNode parent) {
+	private static void processScenarioOutlineExamples(AstNode[] lineNodes, Scenario scenarioOutline, AstNode parent) {
 		for (Examples examples : scenarioOutline.getExamples()) {
 			AstNode examplesNode = new AstNode(examples, parent);
 			TableRow headerRow = examples.getTableHeader();
 			AstNode headerNode = new AstNode(headerRow, examplesNode);
-			nodeMap.put(headerRow.getLocation().getLine(), headerNode);
+			lineNodes[headerRow.getLocation().getLine().intValue()] = headerNode;
 			for (int i = 0; i < examples.getTableBody().size(); ++i) {
 				TableRow examplesRow = examples.getTableBody().get(i);
 				Object rowNode = new ExamplesRowWrapperNode(examplesRow, i);
 				AstNode expandedScenarioNode = new AstNode(rowNode, examplesNode);
-				nodeMap.put(examplesRow.getLocation().getLine(), expandedScenarioNode);
+				lineNodes[examplesRow.getLocation().getLine().intValue()] = expandedScenarioNode;
 			}
 		}
 	}
 
-	AstNode getAstNode(URI path, int line) {
-		if (!pathToNodeMap.containsKey(path)) {
-			parseGherkinSource(path);
-		}
-		if (pathToNodeMap.containsKey(path)) {
-			return pathToNodeMap.get(path).get(Long.valueOf(line));
-		}
-		return null;
-	}
+	static final class FeatureSource {
 
-	boolean hasBackground(URI path, int line) {
-		if (!pathToNodeMap.containsKey(path)) {
-			parseGherkinSource(path);
-		}
-		if (pathToNodeMap.containsKey(path)) {
-			AstNode astNode = pathToNodeMap.get(path).get(Long.valueOf(line));
-			return getBackgroundForTestCase(astNode).isPresent();
+		private final GherkinDocument gherkinDocument;
+		private final AstNode[] lineNodes;
+		private final int pickleCount;
+		private final AtomicInteger finishedCount = new AtomicInteger(0);
+
+		private FeatureSource(GherkinDocument gherkinDocument, AstNode[] lineNodes, int pickleCount) {
+			this.gherkinDocument = gherkinDocument;
+			this.lineNodes = lineNodes;
+			this.pickleCount = pickleCount;
 		}
-		return false;
-	}
 
-	static Optional<Background> getBackgroundForTestCase(AstNode astNode) {
-		Feature feature = getFeatureForTestCase(astNode);
-		return feature.getChildren().stream().map(FeatureChild::getBackground).filter(Objects::nonNull).findFirst();
-	}
+		Feature getFeature() {
+			return gherkinDocument.getFeature();
+		}
 
-	private static Feature getFeatureForTestCase(AstNode astNode) {
-		while (astNode.parent != null) {
-			astNode = astNode.parent;
+		AstNode getAstNode(int line) {
+			return line > 0 && line < lineNodes.length ? lineNodes[line] : null;
 		}
-		return (Feature) astNode.node;
+
 	}
 
 	static class ExamplesRowWrapperNode {
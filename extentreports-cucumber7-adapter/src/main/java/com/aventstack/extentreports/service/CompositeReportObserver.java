@@ -0,0 +1,169 @@
+package com.aventstack.extentreports.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.aventstack.extentreports.observer.ReportObserver;
+import com.aventstack.extentreports.observer.entity.ReportEntity;
+
+import io.reactivex.rxjava3.core.Observer;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+/**
+ * Attached in place of the file reporters, so that each of these writes its
+ * report in isolation on a flush. The reporters are created and configured on a
+ * background thread, so that the tests do not wait for these to start, and are
+ * only waited for on the first flush.
+ * <p>
+ * A reporter which fails does not stop the others, and is still called on the
+ * next flush, as an intermediate flush can fail on the tests in progress. Such
+ * failures are ignored, any which remain are reported by the final flush.
+ * Reporters which cannot write a report of tests in progress are skipped on an
+ * intermediate flush. When parallel, the reporters write their reports at the
+ * same time instead of one after the other. The time taken by each reporter to
+ * start and for the last flush is recorded by its class name.
+ */
+class CompositeReportObserver implements ReportObserver<ReportEntity> {
+
+	private final List<LazyReporter> reporters = new ArrayList<>();
+	private final Map<String, Long> startupDurations = new ConcurrentHashMap<>();
+	private final Map<String, Long> flushDurations = new ConcurrentHashMap<>();
+	private final ExecutorService startupExecutor;
+	// Only available when the reporters are flushed in parallel
+	private ExecutorService flushExecutor;
+	private volatile boolean intermediateFlush = false;
+
+	CompositeReportObserver() {
+		startupExecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "extent-reporter-startup");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	void addReporter(Supplier<ReportObserver<?>> reporter, boolean finalFlushOnly) {
+		reporters.add(new LazyReporter(CompletableFuture.supplyAsync(() -> {
+			long start = System.nanoTime();
+			ReportObserver<?> r = reporter.get();
+			startupDurations.put(r.getClass().getSimpleName(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			return r;
+		}, startupExecutor), finalFlushOnly));
+	}
+
+	boolean isEmpty() {
+		return reporters.isEmpty();
+	}
+
+	// No more reporters are added, the startup thread ends once these are created
+	void start(boolean parallel) {
+		startupExecutor.shutdown();
+		if (!parallel || reporters.isEmpty())
+			return;
+
+		AtomicInteger threadCount = new AtomicInteger(0);
+		flushExecutor = Executors.newFixedThreadPool(reporters.size(), r -> {
+			Thread t = new Thread(r, "extent-reporter-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	void setIntermediateFlush(boolean intermediateFlush) {
+		this.intermediateFlush = intermediateFlush;
+	}
+
+	Map<String, Long> getStartupDurations() {
+		return Collections.unmodifiableMap(startupDurations);
+	}
+
+	Map<String, Long> getFlushDurations() {
+		return Collections.unmodifiableMap(flushDurations);
+	}
+
+	@Override
+	public Observer<ReportEntity> getReportObserver() {
+		return new Observer<ReportEntity>() {
+			@Override
+			public void onSubscribe(Disposable d) {
+				// Each reporter is subscribed when it is first flushed
+			}
+
+			@Override
+			public void onNext(ReportEntity value) {
+				if (flushExecutor == null) {
+					reporters.forEach(r -> flush(r, value));
+					return;
+				}
+
+				List<CompletableFuture<Void>> flushes = new ArrayList<>();
+				reporters.forEach(r -> flushes.add(CompletableFuture.runAsync(() -> flush(r, value), flushExecutor)));
+				CompletableFuture.allOf(flushes.toArray(new CompletableFuture<?>[0])).join();
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				reporters.stream().filter(r -> r.observer != null).forEach(r -> r.observer.onError(e));
+			}
+
+			@Override
+			public void onComplete() {
+				reporters.stream().filter(r -> r.observer != null).forEach(r -> r.observer.onComplete());
+			}
+		};
+	}
+
+	private void flush(LazyReporter lazyReporter, ReportEntity value) {
+		if (intermediateFlush && lazyReporter.finalFlushOnly)
+			return;
+
+		ReportObserver<?> reporter;
+		try {
+			reporter = lazyReporter.reporter.join();
+		} catch (Exception e) {
+			// Failed to start, reported on every flush
+			e.printStackTrace();
+			return;
+		}
+
+		long start = System.nanoTime();
+		try {
+			if (lazyReporter.observer == null) {
+				lazyReporter.observer = reporter.getReportObserver();
+				// A reporter disposing its own subscription does not affect the others
+				lazyReporter.observer.onSubscribe(Disposable.empty());
+			}
+			lazyReporter.observer.onNext(value);
+		} catch (Throwable t) {
+			// Tests modified while written are picked up by the next flush
+			if (!intermediateFlush)
+				t.printStackTrace();
+		} finally {
+			flushDurations.put(reporter.getClass().getSimpleName(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+	private static class LazyReporter {
+
+		private final CompletableFuture<ReportObserver<?>> reporter;
+		private final boolean finalFlushOnly;
+		// Created on the first flush, flushes of a reporter never overlap
+		private Observer<ReportEntity> observer;
+
+		LazyReporter(CompletableFuture<ReportObserver<?>> reporter, boolean finalFlushOnly) {
+			this.reporter = reporter;
+			this.finalFlushOnly = finalFlushOnly;
+		}
+
+	}
+}
@@ -0,0 +1,26 @@
+package com.aventstack.extentreports.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Creates the reports from the Json archives of earlier runs, so that these
+ * can be created again, or by another process, without running the tests. The
+ * archives of the shards of a run, or folders containing these, are combined
+ * into a single report. The reporters are set up as for a test run, from the
+ * extent.properties on the classpath or the system properties.
+ * 
+ * <pre>
+ * java -cp ... com.aventstack.extentreports.service.ExtentReportGenerator shards/fork1.json shards/fork2.json
+ * </pre>
+ */
+public class ExtentReportGenerator {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: ExtentReportGenerator <json archive or folder>...");
+			System.exit(1);
+		}
+		ExtentService.createReportsFromJsonArchives(Arrays.asList(args));
+	}
+}
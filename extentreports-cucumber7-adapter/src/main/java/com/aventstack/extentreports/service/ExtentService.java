@@ -8,16 +8,22 @@ import java.io.Serializable;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import com.aventstack.extentreports.ExtentReports;
 import com.aventstack.extentreports.Status;
-import com.aventstack.extentreports.observer.ExtentObserver;
+import com.aventstack.extentreports.observer.ReportObserver;
 import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
 import com.aventstack.extentreports.reporter.ExtentKlovReporter;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
@@ -45,6 +51,59 @@ public class ExtentService implements Serializable {
 	public static synchronized void flush() {
 		if (!ExtentReportsLoader.RUNNER_COUNT_AVAILABLE || ExtentReportsLoader.isRunnerLast()) {
 			ExtentReportsLoader.INSTANCE.flush();
+			ExtentReportsLoader.IS_FLUSHED = true;
+		}
+	}
+
+	/**
+	 * Creates the reports from a Json archive, written by the Json reporter in an
+	 * earlier run, without running the tests again. The reports are created by the
+	 * reporters set up in the extent.properties or the system properties.
+	 */
+	public static void createReportsFromJsonArchive(String path) throws IOException {
+		createReportsFromJsonArchives(Collections.singletonList(path));
+	}
+
+	/**
+	 * Creates a single set of reports from the Json archives of the shards of a
+	 * run, like the forks or machines the tests were split over. A path can also
+	 * be a folder, all the Json files in it are then used in name order.
+	 */
+	public static synchronized void createReportsFromJsonArchives(List<String> paths) throws IOException {
+		List<File> archives = new ArrayList<>();
+		for (String path : paths) {
+			File file = new File(path);
+			File[] files = file.listFiles((dir, name) -> name.endsWith(".json"));
+			if (files == null) {
+				archives.add(file);
+			} else {
+				Arrays.sort(files);
+				archives.addAll(Arrays.asList(files));
+			}
+		}
+		new JsonArchiveMerger(ExtentReportsLoader.INSTANCE).merge(archives);
+		ExtentReportsLoader.INSTANCE.flush();
+		ExtentReportsLoader.IS_FLUSHED = true;
+	}
+
+	/**
+	 * Writes the reports with the tests created till now, while the run is in
+	 * progress. Unlike {@link #flush()}, this does not count as the end of a
+	 * runner. Does nothing once the final flush is done.
+	 */
+	public static synchronized void flushProgress() {
+		if (ExtentReportsLoader.IS_FLUSHED)
+			return;
+		CompositeReportObserver composite = ExtentReportsLoader.COMPOSITE_REPORT_OBSERVER;
+		try {
+			composite.setIntermediateFlush(true);
+			ExtentReportsLoader.INSTANCE.flush();
+		} catch (ConcurrentModificationException e) {
+			// The statistics of the report are refreshed before the reporters are
+			// called, while tests are modified by other threads. The errors of the
+			// reporters themselves are ignored by the composite.
+		} finally {
+			composite.setIntermediateFlush(false);
 		}
 	}
 
@@ -70,6 +129,10 @@ public class ExtentService implements Serializable {
 		return ExtentReportsLoader.ENABLE_BASE64_IMAGE_SRC;
 	}
 
+	public static boolean isBase64ImageSpillEnabled() {
+		return ExtentReportsLoader.SPILL_BASE64_IMAGE_SRC;
+	}
+
 	public static boolean isDeviceEnabled() {
 		return ExtentReportsLoader.IS_DEVICE_ENABLED;
 	}
@@ -86,6 +149,95 @@ public class ExtentService implements Serializable {
 		return ExtentReportsLoader.AUTHOR_NAME_PREFIX;
 	}
 
+	public static int getMediaWriterThreads() {
+		return ExtentReportsLoader.MEDIA_WRITER_THREADS;
+	}
+
+	public static int getMediaWriterQueueSize() {
+		return ExtentReportsLoader.MEDIA_WRITER_QUEUE_SIZE;
+	}
+
+	public static int getFlushInterval() {
+		return ExtentReportsLoader.FLUSH_INTERVAL;
+	}
+
+	public static boolean isFlushOnFeatureEnabled() {
+		return ExtentReportsLoader.IS_FLUSH_ON_FEATURE_ENABLED;
+	}
+
+	/**
+	 * Milliseconds taken by each file reporter for the last flush, by reporter
+	 * class name.
+	 */
+	public static Map<String, Long> getReporterFlushDurations() {
+		return ExtentReportsLoader.COMPOSITE_REPORT_OBSERVER.getFlushDurations();
+	}
+
+	/**
+	 * Milliseconds taken to create and configure each file reporter, by reporter
+	 * class name. The reporters are created in the background, a reporter is
+	 * missing till it is ready.
+	 */
+	public static Map<String, Long> getReporterStartupDurations() {
+		return ExtentReportsLoader.COMPOSITE_REPORT_OBSERVER.getStartupDurations();
+	}
+
+	/**
+	 * Milliseconds taken to read the settings and start the reporters, not
+	 * including the file reporters created in the background.
+	 */
+	public static long getStartupMillis() {
+		return ExtentReportsLoader.STARTUP_MILLIS;
+	}
+
+	public static int getStepArgumentMaxRows() {
+		return ExtentReportsLoader.STEP_ARGUMENT_MAX_ROWS;
+	}
+
+	public static int getStepArgumentMaxLength() {
+		return ExtentReportsLoader.STEP_ARGUMENT_MAX_LENGTH;
+	}
+
+	public static boolean isStepArgumentSpillEnabled() {
+		return ExtentReportsLoader.IS_STEP_ARGUMENT_SPILL_ENABLED;
+	}
+
+	public static boolean isCompactStepEnabled() {
+		return ExtentReportsLoader.IS_COMPACT_STEP_ENABLED;
+	}
+
+	/**
+	 * Statuses of the scenarios always kept in the report, all the scenarios are
+	 * kept when empty.
+	 */
+	public static List<Status> getCaptureStatuses() {
+		return ExtentReportsLoader.CAPTURE_STATUSES;
+	}
+
+	public static int getCaptureSample() {
+		return ExtentReportsLoader.CAPTURE_SAMPLE;
+	}
+
+	public static boolean isMetricsEnabled() {
+		return ExtentReportsLoader.IS_METRICS_ENABLED;
+	}
+
+	public static String getMetricsOutputPath() {
+		return ExtentReportsLoader.METRICS_OUTPUT_PATH;
+	}
+
+	public static boolean isKlovEnabled() {
+		return ExtentReportsLoader.IS_KLOV_ENABLED;
+	}
+
+	public static boolean isAsyncEnabled() {
+		return ExtentReportsLoader.IS_ASYNC_ENABLED;
+	}
+
+	public static int getAsyncQueueSize() {
+		return ExtentReportsLoader.ASYNC_QUEUE_SIZE;
+	}
+
 	@SuppressWarnings("unused")
 	private ExtentReports readResolve() {
 		return ExtentReportsLoader.INSTANCE;
@@ -106,6 +258,7 @@ public class ExtentService implements Serializable {
 		private static final String VIEW_ORDER = "vieworder";
 		private static final String STATUS_FILTER = "statusfilter";
 		private static final String BASE64_IMAGE_SRC = "base64imagesrc";
+		private static final String SPILL = "spill";
 		private static final String ENABLE_DEVICE = "enable.device";
 		private static final String ENABLE_AUTHOR = "enable.author";
 		private static final String PREFIX_DEVICE = "prefix.device";
@@ -140,6 +293,7 @@ public class ExtentService implements Serializable {
 		// Use below for both Spark & Html reporters
 		private static final String BASE64_IMAGE_SRC_SPARK_KEY = EXTENT_REPORTER + DELIM + SPARK + DELIM
 				+ BASE64_IMAGE_SRC;
+		private static final String BASE64_IMAGE_SPILL_SPARK_KEY = BASE64_IMAGE_SRC_SPARK_KEY + DELIM + SPILL;
 
 		private static final String DEVICE_ENABLE_SPARK_KEY = EXTENT_REPORTER + DELIM + SPARK + DELIM + ENABLE_DEVICE;
 		private static final String AUTHOR_ENABLE_SPARK_KEY = EXTENT_REPORTER + DELIM + SPARK + DELIM + ENABLE_AUTHOR;
@@ -147,6 +301,7 @@ public class ExtentService implements Serializable {
 		private static final String AUTHOR_PREFIX_SPARK_KEY = EXTENT_REPORTER + DELIM + SPARK + DELIM + PREFIX_AUTHOR;
 
 		private static boolean ENABLE_BASE64_IMAGE_SRC = false;
+		private static boolean SPILL_BASE64_IMAGE_SRC = false;
 
 		// Use below for both Spark & Pdf reporters
 		private static final String STATUS_FILTER_KEY = EXTENT_REPORTER + DELIM + STATUS_FILTER;
@@ -157,6 +312,15 @@ public class ExtentService implements Serializable {
 
 		private static final String SCREENSHOT_DIR_PROPERTY = "screenshot.dir";
 		private static final String SCREENSHOT_REL_PATH_PROPERTY = "screenshot.rel.path";
+		private static final String SCREENSHOT_WRITER_THREADS_PROPERTY = "screenshot.writer.threads";
+		private static final String SCREENSHOT_WRITER_QUEUE_SIZE_PROPERTY = "screenshot.writer.queuesize";
+
+		private static int MEDIA_WRITER_THREADS;
+		private static int MEDIA_WRITER_QUEUE_SIZE;
+		private static final int DEFAULT_MEDIA_WRITER_THREADS = 2;
+		private static final int DEFAULT_MEDIA_WRITER_QUEUE_SIZE = 100;
+
+		private static boolean IS_KLOV_ENABLED = false;
 
 		private static final String REPORTS_BASEFOLDER = "basefolder";
 		private static final String REPORTS_BASEFOLDER_NAME = REPORTS_BASEFOLDER + DELIM + "name";
@@ -179,12 +343,58 @@ public class ExtentService implements Serializable {
 		private static boolean RUNNER_COUNT_AVAILABLE = true;
 		private static final AtomicInteger CURRENT_RUNNER_COUNT = new AtomicInteger(0);
 
+		private static final String ASYNC_ENABLE_KEY = "extent.async.enable";
+		private static final String ASYNC_QUEUE_SIZE_KEY = "extent.async.queuesize";
+		private static boolean IS_ASYNC_ENABLED = false;
+		private static int ASYNC_QUEUE_SIZE;
+		private static final int DEFAULT_ASYNC_QUEUE_SIZE = 10000;
+
+		private static final String FLUSH_INTERVAL_KEY = "extent.flush.interval";
+		private static final String FLUSH_ON_FEATURE_KEY = "extent.flush.onfeature";
+		private static int FLUSH_INTERVAL;
+		private static boolean IS_FLUSH_ON_FEATURE_ENABLED = false;
+		private static boolean IS_FLUSHED = false;
+
+		private static final String FLUSH_PARALLEL_KEY = "extent.flush.parallel";
+
+		private static final String STEP_ARGUMENT_MAX_ROWS_KEY = "extent.step.argument.maxrows";
+		private static final String STEP_ARGUMENT_MAX_LENGTH_KEY = "extent.step.argument.maxlength";
+		private static final String STEP_ARGUMENT_SPILL_KEY = "extent.step.argument.spill";
+		private static int STEP_ARGUMENT_MAX_ROWS;
+		private static int STEP_ARGUMENT_MAX_LENGTH;
+		private static boolean IS_STEP_ARGUMENT_SPILL_ENABLED = false;
+
+		private static final String STEP_COMPACT_KEY = "extent.step.compact";
+		private static boolean IS_COMPACT_STEP_ENABLED = false;
+
+		private static final String CAPTURE_STATUS_FILTER_KEY = "extent.capture.statusfilter";
+		private static final String CAPTURE_SAMPLE_KEY = "extent.capture.sample";
+		private static List<Status> CAPTURE_STATUSES = Collections.emptyList();
+		private static int CAPTURE_SAMPLE;
+
+		private static final String METRICS_ENABLE_KEY = "extent.metrics.enable";
+		private static final String METRICS_OUT_KEY = "extent.metrics.out";
+		private static final String DEFAULT_METRICS_OUT = OUTPUT_PATH + "ExtentMetrics.json";
+		private static boolean IS_METRICS_ENABLED = false;
+		private static String METRICS_OUTPUT_PATH;
+		private static final CompositeReportObserver COMPOSITE_REPORT_OBSERVER = new CompositeReportObserver();
+		private static long STARTUP_MILLIS;
+
 		static {
+			long start = System.nanoTime();
 			createViaProperties();
 			createViaSystem();
 			configureRunnerCount();
 			configureScreenshotProperties();
 			configureDeviceAndAuthorProperties();
+			configureAsyncProperties();
+			configureMediaWriterProperties();
+			configureFlushProperties();
+			configureStepArgumentProperties();
+			configureCaptureProperties();
+			configureMetricsProperties();
+			attachCompositeReporters();
+			STARTUP_MILLIS = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
 		}
 
 		private static void createViaProperties() {
@@ -333,6 +543,71 @@ public class ExtentService implements Serializable {
 			}
 		}
 
+		private static void configureAsyncProperties() {
+			if ("true".equals(String.valueOf(getPropertyOrDefault(ASYNC_ENABLE_KEY, "false"))))
+				IS_ASYNC_ENABLED = true;
+
+			ASYNC_QUEUE_SIZE = getPositiveInt(ASYNC_QUEUE_SIZE_KEY, DEFAULT_ASYNC_QUEUE_SIZE);
+		}
+
+		private static void configureMediaWriterProperties() {
+			MEDIA_WRITER_THREADS = getPositiveInt(SCREENSHOT_WRITER_THREADS_PROPERTY, DEFAULT_MEDIA_WRITER_THREADS);
+			MEDIA_WRITER_QUEUE_SIZE = getPositiveInt(SCREENSHOT_WRITER_QUEUE_SIZE_PROPERTY,
+					DEFAULT_MEDIA_WRITER_QUEUE_SIZE);
+		}
+
+		private static void configureFlushProperties() {
+			// Seconds between flushes, disabled by default
+			FLUSH_INTERVAL = getPositiveInt(FLUSH_INTERVAL_KEY, 0);
+
+			if ("true".equals(String.valueOf(getPropertyOrDefault(FLUSH_ON_FEATURE_KEY, "false"))))
+				IS_FLUSH_ON_FEATURE_ENABLED = true;
+		}
+
+		private static void configureStepArgumentProperties() {
+			// Rows and characters shown, no limit by default
+			STEP_ARGUMENT_MAX_ROWS = getPositiveInt(STEP_ARGUMENT_MAX_ROWS_KEY, 0);
+			STEP_ARGUMENT_MAX_LENGTH = getPositiveInt(STEP_ARGUMENT_MAX_LENGTH_KEY, 0);
+
+			if ("true".equals(String.valueOf(getPropertyOrDefault(STEP_ARGUMENT_SPILL_KEY, "false"))))
+				IS_STEP_ARGUMENT_SPILL_ENABLED = true;
+
+			if ("true".equals(String.valueOf(getPropertyOrDefault(STEP_COMPACT_KEY, "false"))))
+				IS_COMPACT_STEP_ENABLED = true;
+		}
+
+		private static void configureCaptureProperties() {
+			try {
+				if (getProperty(CAPTURE_STATUS_FILTER_KEY) != null)
+					CAPTURE_STATUSES = Arrays.stream(String.valueOf(getProperty(CAPTURE_STATUS_FILTER_KEY)).split(","))
+							.map(s -> convertToStatus(s.trim())).collect(Collectors.toList());
+			} catch (Exception e) {
+				// Do nothing. Keeps all the scenarios.
+			}
+			// One in every sample of the other scenarios is kept, none by default
+			CAPTURE_SAMPLE = getPositiveInt(CAPTURE_SAMPLE_KEY, 0);
+		}
+
+		private static void configureMetricsProperties() {
+			if ("true".equals(String.valueOf(getPropertyOrDefault(METRICS_ENABLE_KEY, "false"))))
+				IS_METRICS_ENABLED = true;
+
+			Object property = getProperty(METRICS_OUT_KEY);
+			METRICS_OUTPUT_PATH = getBaseFolderName() + (property == null || String.valueOf(property).isEmpty()
+					? DEFAULT_METRICS_OUT
+					: String.valueOf(property));
+		}
+
+		private static int getPositiveInt(String key, int defaultValue) {
+			try {
+				int value = Integer.parseInt(String.valueOf(getPropertyOrDefault(key, defaultValue)));
+				return value > 0 ? value : defaultValue;
+			} catch (Exception e) {
+				// Do nothing, use default value
+				return defaultValue;
+			}
+		}
+
 		private static void initKlov(Properties properties) {
 			ExtentKlovReporter klov = new ExtentKlovReporter("Default");
 			String configPath = properties == null ? System.getProperty(CONFIG_KLOV_KEY)
@@ -348,6 +623,7 @@ public class ExtentService implements Serializable {
 					InputStream is = new FileInputStream(f);
 					klov.loadInitializationParams(is);
 					INSTANCE.attachReporter(klov);
+					IS_KLOV_ENABLED = true;
 				} catch (IOException e) {
 					e.printStackTrace();
 				}
@@ -356,25 +632,31 @@ public class ExtentService implements Serializable {
 
 		private static void initSpark(Properties properties) {
 			String out = getOutputPath(properties, OUT_SPARK_KEY);
-			ExtentSparkReporter spark = new ExtentSparkReporter(out);
-			sparkReportViewOrder(spark);
-			filterReportStatus(spark);
 			base64PngImageStyle();
-			attach(spark, properties, CONFIG_SPARK_KEY);
+			attachReporter(() -> {
+				ExtentSparkReporter spark = new ExtentSparkReporter(out);
+				sparkReportViewOrder(spark);
+				filterReportStatus(spark);
+				loadConfig(spark, properties, CONFIG_SPARK_KEY);
+				return spark;
+			}, false);
 		}
 
 		private static void initHtml(Properties properties) {
 			String out = getOutputPath(properties, OUT_HTML_KEY);
-			ExtentHtmlReporter html = new ExtentHtmlReporter(out);
-			filterReportStatus(html);
 			base64PngImageStyle();
-			attach(html, properties, CONFIG_HTML_KEY);
+			attachReporter(() -> {
+				ExtentHtmlReporter html = new ExtentHtmlReporter(out);
+				filterReportStatus(html);
+				loadConfig(html, properties, CONFIG_HTML_KEY);
+				return html;
+			}, false);
 		}
 
 		private static void initExcel(Properties properties) {
 			String out = getOutputPath(properties, OUT_EXCEL_KEY);
-			ExtentExcelCucumberReporter excel = new ExtentExcelCucumberReporter(out);
-			INSTANCE.attachReporter(excel);
+			// Writes a report only of completed tests, and only once
+			attachReporter(() -> new ExtentExcelCucumberReporter(out), true);
 		}
 
 		private static void filterReportStatus(ReporterFilterable<?> reporter) {
@@ -406,26 +688,31 @@ public class ExtentService implements Serializable {
 		private static void base64PngImageStyle() {
 			if ("true".equals(String.valueOf(getPropertyOrDefault(BASE64_IMAGE_SRC_SPARK_KEY, "false")))) {
 				ENABLE_BASE64_IMAGE_SRC = true;
+				if ("true".equals(String.valueOf(getPropertyOrDefault(BASE64_IMAGE_SPILL_SPARK_KEY, "false"))))
+					SPILL_BASE64_IMAGE_SRC = true;
 			}
 		}
 
 		private static void initJsonf(Properties properties) {
 			String out = getOutputPath(properties, OUT_JSONF_KEY);
-			JsonFormatter jsonf = new JsonFormatter(out);
-			INSTANCE.attachReporter(jsonf);
+			attachReporter(() -> new JsonFormatter(out), false);
 		}
 
 		private static void initPdf(Properties properties) {
 			String out = getOutputPath(properties, OUT_PDF_KEY);
 			configureScreenshotProperties();
-			MediaCleanupOption mediaCleanup = MediaCleanupOption.builder().cleanUpType(CleanupType.PATTERN)
-					.pattern(MediaProcessor.EMBEDDED_PREFIX + ".*").build();
-			ExtentPDFCucumberReporter pdf = new ExtentPDFCucumberReporter(out, SCREENSHOT_FOLDER_NAME, mediaCleanup);
-			filterReportStatus(pdf);
-			INSTANCE.attachReporter(pdf);
+			String mediaFolder = SCREENSHOT_FOLDER_NAME;
+			// Writes a report only of completed tests
+			attachReporter(() -> {
+				MediaCleanupOption mediaCleanup = MediaCleanupOption.builder().cleanUpType(CleanupType.PATTERN)
+						.pattern(MediaProcessor.EMBEDDED_PREFIX + ".*").build();
+				ExtentPDFCucumberReporter pdf = new ExtentPDFCucumberReporter(out, mediaFolder, mediaCleanup);
+				filterReportStatus(pdf);
+				return pdf;
+			}, true);
 		}
 
-		private static void attach(ReporterConfigurable r, Properties properties, String configKey) {
+		private static void loadConfig(ReporterConfigurable r, Properties properties, String configKey) {
 			Object configPath = properties == null ? System.getProperty(configKey) : properties.get(configKey);
 			if (configPath != null && !String.valueOf(configPath).isEmpty())
 				try {
@@ -433,7 +720,20 @@ public class ExtentService implements Serializable {
 				} catch (IOException e) {
 					e.printStackTrace();
 				}
-			INSTANCE.attachReporter((ExtentObserver<?>) r);
+		}
+
+		// Created in the background, as these are only needed on the first flush
+		private static void attachReporter(Supplier<ReportObserver<?>> reporter, boolean finalFlushOnly) {
+			COMPOSITE_REPORT_OBSERVER.addReporter(reporter, finalFlushOnly);
+		}
+
+		private static void attachCompositeReporters() {
+			if (COMPOSITE_REPORT_OBSERVER.isEmpty())
+				return;
+
+			COMPOSITE_REPORT_OBSERVER
+					.start("true".equals(String.valueOf(getPropertyOrDefault(FLUSH_PARALLEL_KEY, "false"))));
+			INSTANCE.attachReporter(COMPOSITE_REPORT_OBSERVER);
 		}
 
 		private static void addSystemInfo(Properties properties) {
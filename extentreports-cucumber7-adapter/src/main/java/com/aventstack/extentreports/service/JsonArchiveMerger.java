@@ -0,0 +1,156 @@
+package com.aventstack.extentreports.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.GherkinKeyword;
+import com.aventstack.extentreports.append.JsonDeserializer;
+import com.aventstack.extentreports.append.RawEntityConverter;
+import com.aventstack.extentreports.gherkin.model.Feature;
+import com.aventstack.extentreports.gherkin.model.ScenarioOutline;
+import com.aventstack.extentreports.model.Test;
+
+/**
+ * Combines the Json archives of several shards of a run into a single report.
+ * The archives are read in parallel, and added to the report in the given
+ * order. A feature, or a scenario outline, run on more than one shard is shown
+ * as a single node containing the scenarios of all the shards. The features,
+ * or outlines of a feature, sharing a name within a shard are matched to those
+ * of the other shards in the order these occur.
+ */
+class JsonArchiveMerger {
+
+	private final ExtentReports extent;
+	private final RawEntityConverter converter;
+	// Feature and scenario outline nodes, by their names from the feature down
+	// and their occurrence within the shard
+	private final Map<String, ExtentTest> containers = new HashMap<>();
+
+	JsonArchiveMerger(ExtentReports extent) {
+		this.extent = extent;
+		this.converter = new RawEntityConverter(extent);
+	}
+
+	void merge(List<File> archives) throws IOException {
+		if (archives.isEmpty())
+			return;
+
+		// Keeps the times of the archived tests
+		extent.setReportUsesManualConfiguration(true);
+		int threads = Math.min(archives.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "extent-archive-reader");
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			// Only as many shards are read ahead as there are readers, so that the
+			// parsed shards waiting to be added are bounded
+			List<CompletableFuture<List<Test>>> shards = new ArrayList<>(Collections.nCopies(archives.size(), null));
+			for (int i = 0; i < threads; i++) {
+				shards.set(i, read(archives.get(i), executor));
+			}
+			for (int i = 0; i < archives.size(); i++) {
+				Map<String, Integer> occurrences = new HashMap<>();
+				for (Test test : join(shards.get(i))) {
+					addTest(null, "", test, occurrences);
+				}
+				// The report holds its own copy of the tests
+				shards.set(i, null);
+				if (i + threads < archives.size()) {
+					shards.set(i + threads, read(archives.get(i + threads), executor));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void addTest(ExtentTest parent, String parentKey, Test test, Map<String, Integer> occurrences) {
+		try {
+			boolean container = parent == null ? test.getBddType() == Feature.class
+					: test.getBddType() == ScenarioOutline.class;
+			if (!container) {
+				converter.createDomain(test, createTest(parent, test));
+				return;
+			}
+
+			// Containers of the same name within a shard are different features or
+			// outlines, so only the ones of different shards are merged
+			String name = parentKey + "/" + test.getName();
+			String key = name + "#" + occurrences.merge(name, 1, Integer::sum);
+			ExtentTest containerTest = containers.get(key);
+			if (containerTest == null) {
+				containerTest = createTest(parent, test);
+				containerTest.getModel().setStartTime(test.getStartTime());
+				containerTest.getModel().setEndTime(test.getEndTime());
+				containers.put(key, containerTest);
+			} else {
+				mergeContainer(containerTest.getModel(), test);
+			}
+			for (Test child : test.getChildren()) {
+				addTest(containerTest, key, child, occurrences);
+			}
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private ExtentTest createTest(ExtentTest parent, Test test) throws ClassNotFoundException {
+		if (test.getBddType() == null) {
+			return parent == null ? extent.createTest(test.getName(), test.getDescription())
+					: parent.createNode(test.getName(), test.getDescription());
+		}
+		GherkinKeyword keyword = new GherkinKeyword(test.getBddType().getSimpleName());
+		return parent == null ? extent.createTest(keyword, test.getName(), test.getDescription())
+				: parent.createNode(keyword, test.getName(), test.getDescription());
+	}
+
+	private static void mergeContainer(Test model, Test test) {
+		if (test.getStartTime().before(model.getStartTime()))
+			model.setStartTime(test.getStartTime());
+		if (test.getEndTime().after(model.getEndTime()))
+			model.setEndTime(test.getEndTime());
+
+		// The examples of an outline are described by the shards which ran these
+		String description = test.getDescription();
+		if (description != null && !description.isEmpty()
+				&& (model.getDescription() == null || !model.getDescription().contains(description)))
+			model.setDescription(model.getDescription() == null || model.getDescription().isEmpty() ? description
+					: model.getDescription() + "<br><br>" + description);
+	}
+
+	private static CompletableFuture<List<Test>> read(File archive, ExecutorService executor) {
+		return CompletableFuture.supplyAsync(() -> deserialize(archive), executor);
+	}
+
+	private static List<Test> deserialize(File archive) {
+		try {
+			return new JsonDeserializer(archive).deserialize();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static List<Test> join(CompletableFuture<List<Test>> shard) throws IOException {
+		try {
+			return shard.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			throw e;
+		}
+	}
+}